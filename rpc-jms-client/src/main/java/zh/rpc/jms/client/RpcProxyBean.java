@@ -1,9 +1,24 @@
 package zh.rpc.jms.client;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.FactoryBean;
 
+import zh.rpc.jms.client.breaker.CircuitBreaker;
+import zh.rpc.jms.client.cache.CallCoalescer;
+import zh.rpc.jms.client.cache.CallKey;
+import zh.rpc.jms.client.cache.ResultCache;
+import zh.rpc.jms.client.hedge.LatencyTracker;
 import zh.rpc.jms.client.proxy.ProxyFactory;
 import zh.rpc.jms.client.remote.JmsInvoker;
+import zh.rpc.jms.common.annotation.RpcCacheable;
+import zh.rpc.jms.common.annotation.RpcIdempotent;
+import zh.rpc.jms.common.util.WarmUpUtils;
 
 public class RpcProxyBean extends JmsInvoker implements FactoryBean<Object> {
 
@@ -14,6 +29,63 @@ public class RpcProxyBean extends JmsInvoker implements FactoryBean<Object> {
 
 	private Object serviceProxy;
 
+	// 异步接口，方法与serviceInterface同名同参数，返回Future 可选
+	private Class<?> asyncInterface;
+
+	private Object asyncProxy;
+
+	// 标注了@RpcCacheable的方法及其结果缓存
+	private Map<Method, ResultCache> resultCaches = new HashMap<Method, ResultCache>();
+
+	// 是否合并并发的相同调用 默认：false
+	private boolean coalesceCalls = false;
+
+	private CallCoalescer callCoalescer;
+
+	// 是否为每个方法开启熔断 默认：false
+	private boolean circuitBreaker = false;
+
+	// 熔断统计的最近调用次数 默认：20
+	private int breakerWindowSize = 20;
+
+	// 窗口内至少有多少次调用才判断是否熔断 默认：10
+	private int breakerMinCalls = 10;
+
+	// 失败比例达到该值时熔断 默认：0.5
+	private double breakerFailureRatio = 0.5;
+
+	// 超过该时延(毫秒)的调用计为失败 默认为0，不统计慢调用
+	private long breakerSlowCallThreshold = 0;
+
+	// 熔断持续时间(毫秒)，之后进入半开状态 默认：5秒
+	private long breakerOpenDuration = 5000;
+
+	// 半开状态放行的探测调用数 默认：3
+	private int breakerHalfOpenProbes = 3;
+
+	// 熔断时的降级实现，需实现serviceInterface；为null时抛出RpcCircuitOpenException
+	private Object fallback;
+
+	private Map<Method, CircuitBreaker> circuitBreakers = new HashMap<Method, CircuitBreaker>();
+
+	// 开启hedgeRequests时，标注了@RpcIdempotent的方法及其时延统计
+	private Map<Method, LatencyTracker> latencyTrackers = new HashMap<Method, LatencyTracker>();
+
+	// 服务代理生成方式 默认：JDK
+	private ProxyFactory.Generator proxyGenerator = ProxyFactory.Generator.JDK;
+
+	// 是否以方法编号代替方法名和参数类型，要求服务端的接口定义与客户端一致 默认：false
+	private boolean compactHeader = false;
+
+	// 基本类型参数和返回值是否编码为原始值，不经过Object[]和类型标记；BYTECODE代理的参数不经过装箱 默认：false
+	private boolean packPrimitives = false;
+
+	// 初始化时是否为接口方法预先构建schema 默认：true
+	private boolean warmUp = true;
+
+	// 预热时模拟序列化/反序列化的轮数 默认：0
+	private int warmUpRounds = 0;
+
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		super.afterPropertiesSet();
@@ -21,7 +93,71 @@ public class RpcProxyBean extends JmsInvoker implements FactoryBean<Object> {
 			throw new IllegalArgumentException("'serviceInterface' must be an interface");
 		}
 
-		serviceProxy = new ProxyFactory(this).getProxy();
+		if (this.asyncInterface != null && !this.asyncInterface.isInterface()) {
+			throw new IllegalArgumentException("'asyncInterface' must be an interface");
+		}
+
+		if (this.fallback != null && !this.serviceInterface.isInstance(this.fallback)) {
+			throw new IllegalArgumentException("'fallback' must implement " + this.serviceInterface.getName());
+		}
+
+		initResultCaches();
+		if (isHedgeRequests()) {
+			initLatencyTrackers();
+		}
+		if (this.circuitBreaker) {
+			initCircuitBreakers();
+		}
+		if (this.coalesceCalls) {
+			callCoalescer = new CallCoalescer();
+		}
+
+		ProxyFactory proxyFactory = new ProxyFactory(this);
+		serviceProxy = proxyFactory.getProxy(this.proxyGenerator);
+		if (this.asyncInterface != null) {
+			asyncProxy = proxyFactory.getAsyncProxy(this.asyncInterface);
+		}
+		if (this.warmUp) {
+			List<Method> methods = Arrays.asList(this.serviceInterface.getMethods());
+			WarmUpUtils.preloadSchemas(methods);
+			WarmUpUtils.runRounds(getSerializer(), methods, this.warmUpRounds);
+		}
+	}
+
+	/**
+	 * 为标注了@RpcCacheable的接口方法创建结果缓存
+	 */
+	private void initResultCaches() {
+		for (Method method : this.serviceInterface.getMethods()) {
+			RpcCacheable cacheable = method.getAnnotation(RpcCacheable.class);
+			if (cacheable != null) {
+				resultCaches.put(method, new ResultCache(this.serviceInterface.getName(), method, cacheable.ttl(),
+						cacheable.maxSize()));
+			}
+		}
+	}
+
+	/**
+	 * 为标注了@RpcIdempotent的接口方法创建时延统计
+	 */
+	private void initLatencyTrackers() {
+		for (Method method : this.serviceInterface.getMethods()) {
+			if (method.isAnnotationPresent(RpcIdempotent.class)) {
+				latencyTrackers.put(method, new LatencyTracker(getHedgePercentile()));
+			}
+		}
+	}
+
+	/**
+	 * 为每个接口方法创建熔断器
+	 */
+	private void initCircuitBreakers() {
+		for (Method method : this.serviceInterface.getMethods()) {
+			String name = this.serviceInterface.getName() + "#" + CallKey.signatureOf(method) + ":"
+					+ this.serviceVesion;
+			circuitBreakers.put(method, new CircuitBreaker(name, breakerWindowSize, breakerMinCalls,
+					breakerFailureRatio, breakerSlowCallThreshold, breakerOpenDuration, breakerHalfOpenProbes));
+		}
 	}
 
 	@Override
@@ -51,6 +187,187 @@ public class RpcProxyBean extends JmsInvoker implements FactoryBean<Object> {
 		return serviceProxy;
 	}
 
+	public Class<?> getAsyncInterface() {
+		return asyncInterface;
+	}
+
+	public void setAsyncInterface(Class<?> asyncInterface) {
+		this.asyncInterface = asyncInterface;
+	}
+
+	/**
+	 * 异步代理，可通过factory-bean="&amp;beanName" factory-method="getAsyncProxy"注入
+	 * 
+	 * @return
+	 */
+	public Object getAsyncProxy() {
+		return asyncProxy;
+	}
+
+	/**
+	 * 方法的结果缓存，未标注@RpcCacheable时返回null
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public ResultCache getResultCache(Method method) {
+		return resultCaches.get(method);
+	}
+
+	public Collection<ResultCache> getResultCaches() {
+		return resultCaches.values();
+	}
+
+	/**
+	 * 方法的时延统计，未开启hedgeRequests或未标注@RpcIdempotent时返回null
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public LatencyTracker getLatencyTracker(Method method) {
+		return latencyTrackers.get(method);
+	}
+
+	public boolean isCoalesceCalls() {
+		return coalesceCalls;
+	}
+
+	public void setCoalesceCalls(boolean coalesceCalls) {
+		this.coalesceCalls = coalesceCalls;
+	}
+
+	/**
+	 * 并发调用合并器，未开启coalesceCalls时返回null
+	 * 
+	 * @return
+	 */
+	public CallCoalescer getCallCoalescer() {
+		return callCoalescer;
+	}
+
+	public ProxyFactory.Generator getProxyGenerator() {
+		return proxyGenerator;
+	}
+
+	public void setProxyGenerator(ProxyFactory.Generator proxyGenerator) {
+		this.proxyGenerator = proxyGenerator;
+	}
+
+	public boolean isCompactHeader() {
+		return compactHeader;
+	}
+
+	public void setCompactHeader(boolean compactHeader) {
+		this.compactHeader = compactHeader;
+	}
+
+	public boolean isPackPrimitives() {
+		return packPrimitives;
+	}
+
+	public void setPackPrimitives(boolean packPrimitives) {
+		this.packPrimitives = packPrimitives;
+	}
+
+	public boolean isWarmUp() {
+		return warmUp;
+	}
+
+	public void setWarmUp(boolean warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	public int getWarmUpRounds() {
+		return warmUpRounds;
+	}
+
+	public void setWarmUpRounds(int warmUpRounds) {
+		this.warmUpRounds = warmUpRounds;
+	}
+
+	public boolean isCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(boolean circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	public int getBreakerWindowSize() {
+		return breakerWindowSize;
+	}
+
+	public void setBreakerWindowSize(int breakerWindowSize) {
+		this.breakerWindowSize = breakerWindowSize;
+	}
+
+	public int getBreakerMinCalls() {
+		return breakerMinCalls;
+	}
+
+	public void setBreakerMinCalls(int breakerMinCalls) {
+		this.breakerMinCalls = breakerMinCalls;
+	}
+
+	public double getBreakerFailureRatio() {
+		return breakerFailureRatio;
+	}
+
+	public void setBreakerFailureRatio(double breakerFailureRatio) {
+		this.breakerFailureRatio = breakerFailureRatio;
+	}
+
+	public long getBreakerSlowCallThreshold() {
+		return breakerSlowCallThreshold;
+	}
+
+	public void setBreakerSlowCallThreshold(long breakerSlowCallThreshold) {
+		this.breakerSlowCallThreshold = breakerSlowCallThreshold;
+	}
+
+	public long getBreakerOpenDuration() {
+		return breakerOpenDuration;
+	}
+
+	public void setBreakerOpenDuration(long breakerOpenDuration) {
+		this.breakerOpenDuration = breakerOpenDuration;
+	}
+
+	public int getBreakerHalfOpenProbes() {
+		return breakerHalfOpenProbes;
+	}
+
+	public void setBreakerHalfOpenProbes(int breakerHalfOpenProbes) {
+		this.breakerHalfOpenProbes = breakerHalfOpenProbes;
+	}
+
+	public Object getFallback() {
+		return fallback;
+	}
+
+	public void setFallback(Object fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * 方法的熔断器，未开启circuitBreaker时返回null
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public CircuitBreaker getCircuitBreaker(Method method) {
+		return circuitBreakers.get(method);
+	}
+
+	/**
+	 * 所有方法的熔断器，用于监控熔断状态
+	 * 
+	 * @return
+	 */
+	public Collection<CircuitBreaker> getCircuitBreakers() {
+		return circuitBreakers.values();
+	}
+
 	public String getServiceVesion() {
 		return serviceVesion;
 	}
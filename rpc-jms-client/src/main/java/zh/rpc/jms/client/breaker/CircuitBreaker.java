@@ -0,0 +1,233 @@
+package zh.rpc.jms.client.breaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 单个服务方法的熔断器：统计最近windowSize次调用，失败(含慢调用)比例达到failureRatio后打开，
+ * 打开期间调用直接失败；经过openDuration后进入半开状态，放行halfOpenProbes个探测调用，全部成功则关闭，任一失败则重新打开
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class CircuitBreaker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * 熔断器状态
+	 */
+	public enum State {
+		// 正常调用
+		CLOSED,
+		// 调用直接失败
+		OPEN,
+		// 放行少量探测调用
+		HALF_OPEN
+	}
+
+	// 服务接口#方法签名:版本
+	private final String name;
+
+	// 滑动窗口大小(调用次数)
+	private final int windowSize;
+
+	// 窗口内至少有多少次调用才计算失败比例
+	private final int minCalls;
+
+	private final double failureRatio;
+
+	// 超过该时延(纳秒)的调用计为失败 0表示不统计时延
+	private final long slowCallThreshold;
+
+	// 打开状态持续时间(毫秒)
+	private final long openDuration;
+
+	private final int halfOpenProbes;
+
+	// 窗口内各次调用是否失败
+	private final boolean[] outcomes;
+
+	private int index;
+
+	private int calls;
+
+	private int failures;
+
+	private volatile State state = State.CLOSED;
+
+	private long openedAt;
+
+	// 半开状态下剩余可放行的探测调用数
+	private int probesRemaining;
+
+	private int probeSuccesses;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong openCount = new AtomicLong();
+
+	public CircuitBreaker(String name, int windowSize, int minCalls, double failureRatio, long slowCallThreshold,
+			long openDuration, int halfOpenProbes) {
+		if (windowSize <= 0 || minCalls <= 0 || halfOpenProbes <= 0) {
+			throw new IllegalArgumentException("windowSize, minCalls and halfOpenProbes must be greater than '0'");
+		}
+		if (failureRatio <= 0 || failureRatio > 1) {
+			throw new IllegalArgumentException("failureRatio must be between '0' and '1'");
+		}
+		this.name = name;
+		this.windowSize = windowSize;
+		this.minCalls = Math.min(minCalls, windowSize);
+		this.failureRatio = failureRatio;
+		this.slowCallThreshold = TimeUnit.MILLISECONDS.toNanos(slowCallThreshold);
+		this.openDuration = openDuration;
+		this.halfOpenProbes = halfOpenProbes;
+		this.outcomes = new boolean[windowSize];
+	}
+
+	/**
+	 * 调用前申请放行
+	 *
+	 * @return 熔断器打开或半开探测已满时返回false
+	 */
+	public boolean tryAcquire() {
+		if (state == State.CLOSED) {
+			return true;
+		}
+		synchronized (this) {
+			if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+				transitionTo(State.HALF_OPEN);
+				probesRemaining = halfOpenProbes;
+				probeSuccesses = 0;
+			}
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (state == State.HALF_OPEN && probesRemaining > 0) {
+				probesRemaining--;
+				return true;
+			}
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * 调用成功，超过慢调用阈值时计为失败
+	 *
+	 * @param latency
+	 *            纳秒
+	 */
+	public void onSuccess(long latency) {
+		record(slowCallThreshold > 0 && latency > slowCallThreshold);
+	}
+
+	/**
+	 * 调用失败(超时或无法访问JMS)
+	 */
+	public void onFailure() {
+		record(true);
+	}
+
+	/**
+	 * 调用未发出(被客户端流控拒绝)，不计入统计；半开状态下归还探测名额
+	 */
+	public synchronized void onIgnored() {
+		if (state == State.HALF_OPEN && probesRemaining < halfOpenProbes) {
+			probesRemaining++;
+		}
+	}
+
+	private synchronized void record(boolean failed) {
+		if (state == State.HALF_OPEN) {
+			if (failed) {
+				open();
+			} else if (++probeSuccesses >= halfOpenProbes) {
+				close();
+			}
+			return;
+		}
+		if (state == State.OPEN) {
+			// 打开前已发出的调用
+			return;
+		}
+		if (calls == windowSize) {
+			if (outcomes[index]) {
+				failures--;
+			}
+		} else {
+			calls++;
+		}
+		outcomes[index] = failed;
+		if (failed) {
+			failures++;
+		}
+		index = (index + 1) % windowSize;
+		if (calls >= minCalls && failures >= failureRatio * calls) {
+			open();
+		}
+	}
+
+	private void open() {
+		openedAt = System.currentTimeMillis();
+		openCount.incrementAndGet();
+		transitionTo(State.OPEN);
+	}
+
+	private void close() {
+		calls = 0;
+		failures = 0;
+		index = 0;
+		transitionTo(State.CLOSED);
+	}
+
+	private void transitionTo(State newState) {
+		LOGGER.info("Circuit breaker [" + name + "] " + state + " -> " + newState);
+		state = newState;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * 当前窗口内的失败比例
+	 *
+	 * @return
+	 */
+	public synchronized double getFailureRatio() {
+		return calls == 0 ? 0 : (double) failures / calls;
+	}
+
+	/**
+	 * 因熔断直接失败的调用数
+	 *
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * 打开的次数
+	 *
+	 * @return
+	 */
+	public long getOpenCount() {
+		return openCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return name + " state=" + state + ", failureRatio=" + getFailureRatio() + ", rejected=" + getRejectedCount()
+				+ ", opened=" + getOpenCount();
+	}
+
+}
@@ -0,0 +1,60 @@
+package zh.rpc.jms.client.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并同一时刻的相同调用：第一个调用方发送请求，其余调用方等待同一个结果，
+ * 响应返回后立即移除，不做缓存
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class CallCoalescer {
+
+	private final ConcurrentMap<CallKey, FutureTask<Object>> inFlightCalls = new ConcurrentHashMap<CallKey, FutureTask<Object>>();
+
+	// 被合并(未实际发送)的调用数
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * 执行调用，存在相同的进行中调用时等待其结果
+	 * 
+	 * @param key
+	 * @param call
+	 * @return
+	 * @throws Throwable
+	 */
+	public Object execute(CallKey key, Callable<Object> call) throws Throwable {
+		FutureTask<Object> task = new FutureTask<Object>(call);
+		FutureTask<Object> existing = inFlightCalls.putIfAbsent(key, task);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			task = existing;
+		} else {
+			try {
+				task.run();
+			} finally {
+				inFlightCalls.remove(key, task);
+			}
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public int getInFlightCount() {
+		return inFlightCalls.size();
+	}
+
+}
@@ -0,0 +1,89 @@
+package zh.rpc.jms.client.cache;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.util.MethodTable;
+import zh.rpc.jms.common.util.SerializationUtil;
+
+/**
+ * 一次调用的标识：接口、版本、方法签名及序列化后的参数
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class CallKey {
+
+	private final String interfaceName;
+
+	private final String serviceVersion;
+
+	private final String methodSignature;
+
+	private final byte[] arguments;
+
+	private final int hash;
+
+	public CallKey(String interfaceName, String serviceVersion, String methodSignature, byte[] arguments) {
+		this.interfaceName = interfaceName;
+		this.serviceVersion = serviceVersion;
+		this.methodSignature = methodSignature;
+		this.arguments = arguments;
+		int h = interfaceName.hashCode();
+		h = 31 * h + (serviceVersion != null ? serviceVersion.hashCode() : 0);
+		h = 31 * h + methodSignature.hashCode();
+		h = 31 * h + Arrays.hashCode(arguments);
+		this.hash = h;
+	}
+
+	/**
+	 * 根据调用的方法及参数生成调用标识，参数以序列化后的字节比较
+	 * 
+	 * @param interfaceName
+	 * @param serviceVersion
+	 * @param methodSignature
+	 * @param args
+	 * @return
+	 */
+	public static CallKey of(String interfaceName, String serviceVersion, String methodSignature, Object[] args) {
+		RpcRequest holder = new RpcRequest();
+		holder.setParameters(args);
+		return new CallKey(interfaceName, serviceVersion, methodSignature, SerializationUtil.serialize(holder));
+	}
+
+	/**
+	 * 方法签名，如hello(java.lang.String)
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public static String signatureOf(Method method) {
+		return MethodTable.signatureOf(method);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CallKey)) {
+			return false;
+		}
+		CallKey other = (CallKey) obj;
+		return hash == other.hash && interfaceName.equals(other.interfaceName)
+				&& (serviceVersion != null ? serviceVersion.equals(other.serviceVersion) : other.serviceVersion == null)
+				&& methodSignature.equals(other.methodSignature) && Arrays.equals(arguments, other.arguments);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return interfaceName + "#" + methodSignature + (serviceVersion != null ? "-" + serviceVersion : "");
+	}
+
+}
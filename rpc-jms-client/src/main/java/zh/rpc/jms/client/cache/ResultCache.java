@@ -0,0 +1,175 @@
+package zh.rpc.jms.client.cache;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个服务方法的客户端结果缓存，按有效期过期，超出容量时淘汰最近最少使用的结果
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class ResultCache {
+
+	private final String name;
+
+	// 缓存有效期(毫秒)
+	private final long ttl;
+
+	private final LinkedHashMap<CallKey, CacheEntry> entries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param interfaceName
+	 * @param method
+	 * @param ttl
+	 *            缓存有效期(毫秒)，必须大于0
+	 * @param maxSize
+	 *            最多缓存的结果数，必须大于0
+	 * @throws IllegalArgumentException
+	 *             ttl或maxSize不大于0，或方法参数为无序的Map/Set
+	 */
+	public ResultCache(String interfaceName, Method method, long ttl, final int maxSize) {
+		this.name = interfaceName + "#" + CallKey.signatureOf(method);
+		if (ttl <= 0 || maxSize <= 0) {
+			throw new IllegalArgumentException("Invalid @RpcCacheable on " + name + ": ttl=" + ttl + ", maxSize="
+					+ maxSize);
+		}
+		checkParameterTypes(method);
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<CallKey, CacheEntry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CallKey, CacheEntry> eldest) {
+				if (size() > maxSize) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 调用标识按序列化后的参数比较，HashMap、HashSet等无序集合相同的内容可能以不同的顺序序列化，
+	 * 缓存总是不命中，因此不允许以Map/Set(SortedMap/SortedSet除外)作为参数类型
+	 * 
+	 * @param method
+	 */
+	private void checkParameterTypes(Method method) {
+		for (Class<?> type : method.getParameterTypes()) {
+			Class<?> elementType = type;
+			while (elementType.isArray()) {
+				elementType = elementType.getComponentType();
+			}
+			if ((Map.class.isAssignableFrom(elementType) && !SortedMap.class.isAssignableFrom(elementType))
+					|| (Set.class.isAssignableFrom(elementType) && !SortedSet.class.isAssignableFrom(elementType))) {
+				throw new IllegalArgumentException("@RpcCacheable method " + name
+						+ " must not take unordered Map/Set parameters: " + type.getName());
+			}
+		}
+	}
+
+	/**
+	 * 查询缓存，未命中或已过期时返回null
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public CacheEntry get(CallKey key) {
+		CacheEntry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+				entries.remove(key);
+				evictionCount.incrementAndGet();
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return entry;
+	}
+
+	public void put(CallKey key, Object value) {
+		CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttl);
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": size=" + size() + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", evictions=" + getEvictionCount();
+	}
+
+	/**
+	 * 缓存的调用结果，结果本身可以为null
+	 */
+	public static class CacheEntry {
+
+		private final Object value;
+
+		private final long expireTime;
+
+		CacheEntry(Object value, long expireTime) {
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		boolean isExpired(long now) {
+			return now >= expireTime;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package zh.rpc.jms.client.flow;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.exception.RpcRejectedException;
+
+/**
+ * 客户端在途请求窗口：限制同时等待响应的请求数，窗口大小可根据往返时延自适应调整
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class InFlightLimiter {
+
+	/**
+	 * 窗口已满时的获取策略
+	 */
+	public enum Policy {
+		// 阻塞等待直到有空闲窗口或超时
+		BLOCK,
+		// 立即失败
+		FAIL_FAST
+	}
+
+	/**
+	 * 窗口自适应算法
+	 */
+	public enum Adaptive {
+		// 固定窗口
+		NONE,
+		// 加性增、乘性减
+		AIMD,
+		// 根据最小往返时延与当前往返时延的比值调整(Vegas/Gradient)
+		GRADIENT
+	}
+
+	// 出现超时或时延过高时窗口的缩减比例
+	private static final double BACKOFF_RATIO = 0.9;
+
+	// 往返时延超过最小往返时延的倍数后视为拥塞
+	private static final double RTT_TOLERANCE = 2.0;
+
+	// GRADIENT模式下新窗口的平滑系数
+	private static final double SMOOTHING = 0.2;
+
+	// 每采样多少次重置一次最小往返时延，以便重新探测
+	private static final int MIN_RTT_RESET_SAMPLES = 1000;
+
+	private final int maxLimit;
+
+	private final int minLimit;
+
+	private final Policy policy;
+
+	// 阻塞获取的最长等待时间(毫秒) 0表示一直等待
+	private final long acquireTimeout;
+
+	private final Adaptive adaptive;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition available = lock.newCondition();
+
+	private volatile double limit;
+
+	private int inFlight;
+
+	private long minRtt = Long.MAX_VALUE;
+
+	private int samples;
+
+	// 最近一次缩减窗口的时间(纳秒)，此前发出的请求超时或时延过高不再重复缩减
+	private long lastDecreaseTime;
+
+	public InFlightLimiter(int maxLimit, Policy policy, long acquireTimeout, Adaptive adaptive) {
+		if (maxLimit <= 0) {
+			throw new IllegalArgumentException("maxLimit must be greater than '0'");
+		}
+		this.maxLimit = maxLimit;
+		this.minLimit = 1;
+		this.policy = policy;
+		this.acquireTimeout = acquireTimeout;
+		this.adaptive = adaptive;
+		this.limit = maxLimit;
+		this.lastDecreaseTime = System.nanoTime();
+	}
+
+	/**
+	 * 获取一个窗口
+	 *
+	 * @return 获取时间(纳秒)，释放时用于计算往返时延
+	 */
+	public long acquire() {
+		lock.lock();
+		try {
+			if (inFlight >= (int) limit) {
+				if (policy == Policy.FAIL_FAST) {
+					throw new RpcRejectedException("Too many in-flight requests, limit=" + (int) limit);
+				}
+				awaitWindow();
+			}
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * 释放窗口，并根据本次往返时延调整窗口大小
+	 *
+	 * @param acquireTime
+	 *            acquire()的返回值
+	 * @param dropped
+	 *            请求是否超时或失败
+	 */
+	public void release(long acquireTime, boolean dropped) {
+		long rtt = System.nanoTime() - acquireTime;
+		lock.lock();
+		try {
+			int previousInFlight = inFlight;
+			inFlight--;
+			if (adaptive != Adaptive.NONE) {
+				adjust(acquireTime, rtt, dropped, previousInFlight);
+			}
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void awaitWindow() {
+		try {
+			if (acquireTimeout > 0) {
+				long nanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeout);
+				while (inFlight >= (int) limit) {
+					if (nanos <= 0) {
+						throw new RpcRejectedException("Timeout waiting for in-flight window, limit=" + (int) limit);
+					}
+					nanos = available.awaitNanos(nanos);
+				}
+			} else {
+				while (inFlight >= (int) limit) {
+					available.await();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RpcJmsException("Interrupted while waiting for in-flight window", e);
+		}
+	}
+
+	private void adjust(long acquireTime, long rtt, boolean dropped, int previousInFlight) {
+		if (++samples >= MIN_RTT_RESET_SAMPLES) {
+			samples = 0;
+			minRtt = Long.MAX_VALUE;
+		}
+		if (!dropped && rtt < minRtt) {
+			minRtt = rtt;
+		}
+		double newLimit;
+		if (dropped) {
+			newLimit = backoff(acquireTime);
+		} else if (adaptive == Adaptive.AIMD) {
+			if (rtt > minRtt * RTT_TOLERANCE) {
+				newLimit = backoff(acquireTime);
+			} else if (previousInFlight >= (int) limit) {
+				newLimit = limit + 1;
+			} else {
+				newLimit = limit;
+			}
+		} else {
+			double gradient = Math.max(0.5, Math.min(1.0, (double) minRtt / rtt));
+			double target = limit * gradient + Math.sqrt(limit);
+			newLimit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+		}
+		double oldLimit = limit;
+		limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		if ((int) limit > (int) oldLimit) {
+			available.signalAll();
+		}
+	}
+
+	/**
+	 * 乘性缩减窗口，同一批在途请求(在上次缩减之前发出的)只缩减一次，避免一次拥塞连续缩减到最小窗口
+	 */
+	private double backoff(long acquireTime) {
+		if (acquireTime - lastDecreaseTime < 0) {
+			return limit;
+		}
+		lastDecreaseTime = System.nanoTime();
+		return limit * BACKOFF_RATIO;
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package zh.rpc.jms.client.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 备份请求配额：每个请求积累maxRatio个令牌，发送一次备份请求消耗一个令牌，
+ * 保证备份请求数不超过请求总数的maxRatio，避免服务端过载时备份请求进一步放大负载
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class HedgeBudget {
+
+	// 最多积累的令牌数，允许短时间内集中发送的备份请求数
+	private static final double MAX_TOKENS = 10;
+
+	private final double maxRatio;
+
+	private double tokens;
+
+	private final AtomicLong hedgedCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	public HedgeBudget(double maxRatio) {
+		if (maxRatio <= 0 || maxRatio > 1) {
+			throw new IllegalArgumentException("maxRatio must be between '0' and '1'");
+		}
+		this.maxRatio = maxRatio;
+	}
+
+	/**
+	 * 每发出一个可备份的请求调用一次
+	 */
+	public synchronized void onRequest() {
+		tokens = Math.min(MAX_TOKENS, tokens + maxRatio);
+	}
+
+	/**
+	 * 申请发送一次备份请求
+	 *
+	 * @return 配额不足时返回false
+	 */
+	public boolean tryAcquire() {
+		synchronized (this) {
+			if (tokens >= 1) {
+				tokens -= 1;
+				hedgedCount.incrementAndGet();
+				return true;
+			}
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	public double getMaxRatio() {
+		return maxRatio;
+	}
+
+	/**
+	 * 已发送的备份请求数
+	 *
+	 * @return
+	 */
+	public long getHedgedCount() {
+		return hedgedCount.get();
+	}
+
+	/**
+	 * 因配额不足未发送的备份请求数
+	 *
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+}
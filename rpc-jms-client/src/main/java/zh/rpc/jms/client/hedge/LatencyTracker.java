@@ -0,0 +1,77 @@
+package zh.rpc.jms.client.hedge;
+
+import java.util.Arrays;
+
+/**
+ * 单个方法的近期调用时延统计：保留最近WINDOW次成功调用的时延，定期重新计算指定分位数，作为发送备份请求的等待时间
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class LatencyTracker {
+
+	// 保留的采样数
+	private static final int WINDOW = 512;
+
+	// 采样不足时不发送备份请求
+	private static final int MIN_SAMPLES = 100;
+
+	// 每采样多少次重新计算一次分位数
+	private static final int RECOMPUTE_INTERVAL = 64;
+
+	// 分位数(百分比)，如95表示p95
+	private final double percentile;
+
+	private final long[] samples = new long[WINDOW];
+
+	private int count;
+
+	private int index;
+
+	private int sinceRecompute;
+
+	// 当前分位数时延(纳秒) 0表示采样不足
+	private volatile long threshold;
+
+	public LatencyTracker(double percentile) {
+		if (percentile <= 0 || percentile >= 100) {
+			throw new IllegalArgumentException("percentile must be between '0' and '100'");
+		}
+		this.percentile = percentile;
+	}
+
+	/**
+	 * 记录一次成功调用的时延
+	 *
+	 * @param latency
+	 *            纳秒
+	 */
+	public synchronized void record(long latency) {
+		samples[index] = latency;
+		index = (index + 1) % WINDOW;
+		if (count < WINDOW) {
+			count++;
+		}
+		if (count >= MIN_SAMPLES && (threshold == 0 || ++sinceRecompute >= RECOMPUTE_INTERVAL)) {
+			sinceRecompute = 0;
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+			threshold = sorted[Math.max(0, Math.min(count - 1, rank))];
+		}
+	}
+
+	/**
+	 * 发送备份请求前的等待时间(纳秒)，采样不足时返回0
+	 *
+	 * @return
+	 */
+	public long getThreshold() {
+		return threshold;
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+
+}
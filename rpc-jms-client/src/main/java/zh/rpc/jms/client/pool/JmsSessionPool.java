@@ -0,0 +1,295 @@
+package zh.rpc.jms.client.pool;
+
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.exception.RpcRejectedException;
+
+/**
+ * 客户端JMS资源池：维护若干长连接，并池化Session及其上的MessageProducer
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class JmsSessionPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JmsSessionPool.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final Queue queue;
+
+	// 长连接数量 默认：1
+	private int maxConnections = 1;
+
+	// 最小空闲Session数 默认：1
+	private int minIdle = 1;
+
+	// 最大Session数 默认：8
+	private int maxActive = 8;
+
+	// 获取Session最大等待时间(毫秒) 0表示一直等待
+	private long maxWait = 0;
+
+	// Session空闲多久后被回收(毫秒) 默认：60秒
+	private long idleTimeout = 60000;
+
+	// 空闲回收检测间隔(毫秒) 默认：30秒
+	private long evictionInterval = 30000;
+
+	// 获取Session时是否校验 默认：true
+	private boolean testOnBorrow = true;
+
+	private final LinkedBlockingDeque<PooledSession> idleSessions = new LinkedBlockingDeque<PooledSession>();
+
+	private final AtomicInteger totalSessions = new AtomicInteger();
+
+	private Semaphore permits;
+
+	private PooledConnection[] connections;
+
+	private int nextConnection = 0;
+
+	private ScheduledExecutorService evictor;
+
+	private volatile boolean closed = false;
+
+	public JmsSessionPool(ConnectionFactory connectionFactory, Queue queue) {
+		this.connectionFactory = connectionFactory;
+		this.queue = queue;
+	}
+
+	/**
+	 * 初始化连接池，预先创建minIdle个Session并启动空闲回收线程
+	 */
+	public void initialize() {
+		if (maxConnections <= 0 || maxActive <= 0 || minIdle < 0 || minIdle > maxActive) {
+			throw new IllegalArgumentException("Invalid pool config: maxConnections=" + maxConnections
+					+ ", maxActive=" + maxActive + ", minIdle=" + minIdle);
+		}
+		this.permits = new Semaphore(maxActive, true);
+		this.connections = new PooledConnection[maxConnections];
+		try {
+			ensureMinIdle();
+		} catch (JMSException e) {
+			LOGGER.error("Could not prefill JMS session pool - sessions will be created lazily", e);
+		}
+		if (evictionInterval > 0) {
+			evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "rpc-jms-pool-evictor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			evictor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					evict();
+				}
+			}, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 从池中借出一个Session
+	 *
+	 * @return
+	 * @throws JMSException
+	 */
+	public PooledSession borrow() throws JMSException {
+		if (closed) {
+			throw new RpcJmsException("JMS session pool is closed");
+		}
+		acquirePermit();
+		try {
+			PooledSession pooled;
+			while ((pooled = idleSessions.pollFirst()) != null) {
+				if (!testOnBorrow || pooled.validate()) {
+					return pooled;
+				}
+				destroy(pooled);
+			}
+			return create();
+		} catch (JMSException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 归还Session，broken为true时直接销毁
+	 *
+	 * @param pooled
+	 * @param broken
+	 */
+	public void release(PooledSession pooled, boolean broken) {
+		if (pooled == null) {
+			return;
+		}
+		try {
+			if (broken || closed || pooled.getConnection().isBroken()) {
+				destroy(pooled);
+			} else {
+				pooled.touch();
+				idleSessions.offerFirst(pooled);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 关闭连接池，销毁所有空闲Session及连接
+	 */
+	public void close() {
+		closed = true;
+		if (evictor != null) {
+			evictor.shutdownNow();
+		}
+		PooledSession pooled;
+		while ((pooled = idleSessions.pollFirst()) != null) {
+			destroy(pooled);
+		}
+		synchronized (this) {
+			for (int i = 0; i < connections.length; i++) {
+				if (connections[i] != null) {
+					connections[i].retire();
+					connections[i] = null;
+				}
+			}
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			if (maxWait > 0) {
+				if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+					throw new RpcRejectedException("Timeout waiting for idle JMS session, maxActive=" + maxActive);
+				}
+			} else {
+				permits.acquire();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RpcJmsException("Interrupted while waiting for idle JMS session", e);
+		}
+	}
+
+	private PooledSession create() throws JMSException {
+		PooledConnection connection = nextConnection();
+		PooledSession pooled = new PooledSession(connection, connection.createSession(), queue);
+		totalSessions.incrementAndGet();
+		return pooled;
+	}
+
+	private void destroy(PooledSession pooled) {
+		totalSessions.decrementAndGet();
+		pooled.destroy();
+	}
+
+	/**
+	 * 轮询选择一个可用连接，连接异常时重新创建
+	 *
+	 * @return
+	 * @throws JMSException
+	 */
+	private synchronized PooledConnection nextConnection() throws JMSException {
+		if (closed) {
+			throw new RpcJmsException("JMS session pool is closed");
+		}
+		int index = nextConnection;
+		nextConnection = (nextConnection + 1) % connections.length;
+		PooledConnection connection = connections[index];
+		if (connection == null || connection.isBroken()) {
+			if (connection != null) {
+				connection.retire();
+			}
+			connection = new PooledConnection(connectionFactory.createConnection());
+			connections[index] = connection;
+		}
+		return connection;
+	}
+
+	private void ensureMinIdle() throws JMSException {
+		while (!closed && idleSessions.size() < minIdle && totalSessions.get() < maxActive) {
+			idleSessions.offerLast(create());
+		}
+	}
+
+	/**
+	 * 回收空闲超时或失效的Session，并补足最小空闲数
+	 */
+	private void evict() {
+		try {
+			long now = System.currentTimeMillis();
+			Iterator<PooledSession> it = idleSessions.descendingIterator();
+			while (it.hasNext()) {
+				PooledSession pooled = it.next();
+				boolean expired = idleTimeout > 0 && now - pooled.getLastReturnTime() > idleTimeout
+						&& idleSessions.size() > minIdle;
+				if ((expired || !pooled.validate()) && idleSessions.removeLastOccurrence(pooled)) {
+					destroy(pooled);
+				}
+			}
+			ensureMinIdle();
+		} catch (Throwable ex) {
+			LOGGER.error("JMS session pool eviction failed", ex);
+		}
+	}
+
+	public int getNumIdle() {
+		return idleSessions.size();
+	}
+
+	public int getNumActive() {
+		return maxActive - permits.availablePermits();
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	public void setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+	}
+
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public void setEvictionInterval(long evictionInterval) {
+		this.evictionInterval = evictionInterval;
+	}
+
+	public void setTestOnBorrow(boolean testOnBorrow) {
+		this.testOnBorrow = testOnBorrow;
+	}
+
+}
@@ -0,0 +1,93 @@
+package zh.rpc.jms.client.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.util.ConnectionFactoryUtils;
+
+/**
+ * 池中长连接，多个PooledSession共享同一个Connection
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+class PooledConnection implements ExceptionListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PooledConnection.class);
+
+	private final Connection connection;
+
+	// 当前连接上未销毁的Session数量
+	private final AtomicInteger sessionCount = new AtomicInteger();
+
+	private volatile boolean broken = false;
+
+	private volatile boolean retired = false;
+
+	/**
+	 * 注册异常监听并启动连接，失败时关闭连接后抛出
+	 * 
+	 * @param connection
+	 * @throws JMSException
+	 */
+	PooledConnection(Connection connection) throws JMSException {
+		this.connection = connection;
+		try {
+			this.connection.setExceptionListener(this);
+			this.connection.start();
+		} catch (JMSException e) {
+			ConnectionFactoryUtils.releaseConnection(connection);
+			throw e;
+		} catch (RuntimeException e) {
+			ConnectionFactoryUtils.releaseConnection(connection);
+			throw e;
+		}
+	}
+
+	Session createSession() throws JMSException {
+		Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		sessionCount.incrementAndGet();
+		return session;
+	}
+
+	@Override
+	public void onException(JMSException ex) {
+		LOGGER.error("Pooled JMS Connection broken, sessions on it will be discarded", ex);
+		this.broken = true;
+	}
+
+	boolean isBroken() {
+		return broken;
+	}
+
+	int getSessionCount() {
+		return sessionCount.get();
+	}
+
+	/**
+	 * Session销毁时调用，连接已退役且没有Session时关闭连接
+	 */
+	void release() {
+		if (sessionCount.decrementAndGet() <= 0 && retired) {
+			ConnectionFactoryUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * 连接不再分配新的Session，待现有Session全部销毁后关闭
+	 */
+	void retire() {
+		this.retired = true;
+		if (sessionCount.get() <= 0) {
+			ConnectionFactoryUtils.releaseConnection(connection);
+		}
+	}
+
+}
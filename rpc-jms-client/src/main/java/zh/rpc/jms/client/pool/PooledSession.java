@@ -0,0 +1,88 @@
+package zh.rpc.jms.client.pool;
+
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import zh.rpc.jms.common.util.JmsUtils;
+
+/**
+ * 池化的Session，缓存了该Session上创建的MessageProducer
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class PooledSession {
+
+	private final PooledConnection connection;
+
+	private final Session session;
+
+	private final Queue queue;
+
+	private MessageProducer producer;
+
+	// 最近一次归还的时间
+	private long lastReturnTime;
+
+	PooledSession(PooledConnection connection, Session session, Queue queue) {
+		this.connection = connection;
+		this.session = session;
+		this.queue = queue;
+		this.lastReturnTime = System.currentTimeMillis();
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * 获取缓存的请求队列Producer，首次使用时创建
+	 *
+	 * @return
+	 * @throws JMSException
+	 */
+	public MessageProducer getProducer() throws JMSException {
+		if (producer == null) {
+			producer = session.createProducer(queue);
+		}
+		return producer;
+	}
+
+	/**
+	 * 校验Session是否可用：所属连接未发生异常且Session未被关闭
+	 *
+	 * @return
+	 */
+	boolean validate() {
+		if (connection.isBroken()) {
+			return false;
+		}
+		try {
+			session.getAcknowledgeMode();
+			return true;
+		} catch (JMSException e) {
+			return false;
+		}
+	}
+
+	PooledConnection getConnection() {
+		return connection;
+	}
+
+	long getLastReturnTime() {
+		return lastReturnTime;
+	}
+
+	void touch() {
+		this.lastReturnTime = System.currentTimeMillis();
+	}
+
+	void destroy() {
+		JmsUtils.closeMessageProducer(producer);
+		JmsUtils.closeSession(session);
+		connection.release();
+	}
+
+}
@@ -0,0 +1,371 @@
+package zh.rpc.jms.client.proxy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import zh.rpc.jms.common.serializer.PrimitiveWriter;
+
+/**
+ * 使用ASM为服务接口生成实现类：每个方法按预先分配的下标取出RpcMethodDescriptor，直接调用ProxyFactory.invoke，
+ * 不经过InvocationHandler和Method查找；与JDK代理一致，方法未声明的受检异常包装为UndeclaredThrowableException。
+ * 开启packPrimitives的方法由PrimitiveWriter直接写入基本类型参数，调用ProxyFactory.invokePacked，参数不经过装箱
+ *
+ * <pre>
+ * public final class IHelloService$$RpcStub$$0 implements IHelloService {
+ * 	private final ProxyFactory factory;
+ * 	private final RpcMethodDescriptor[] descriptors;
+ *
+ * 	public String hello(String name) {
+ * 		try {
+ * 			return (String) factory.invoke(descriptors[0], new Object[] { name });
+ * 		} catch (RuntimeException | Error e) {
+ * 			throw e;
+ * 		} catch (Throwable e) {
+ * 			throw new UndeclaredThrowableException(e);
+ * 		}
+ * 	}
+ * }
+ * 
+ * 	public int add(int a, String b) {
+ * 		// 省略异常处理
+ * 		RpcMethodDescriptor descriptor = descriptors[1];
+ * 		PrimitiveWriter writer = descriptor.newPrimitiveWriter();
+ * 		writer.writeInt(a);
+ * 		return ((Integer) factory.invokePacked(descriptor, writer.toByteArray(), new Object[] { b })).intValue();
+ * 	}
+ * </pre>
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+class BytecodeStubGenerator implements Opcodes {
+
+	private static final String STUB_SUFFIX = "$$RpcStub$$";
+
+	private static final AtomicInteger STUB_COUNTER = new AtomicInteger();
+
+	private static final String OBJECT = Type.getInternalName(Object.class);
+
+	private static final String UNDECLARED = Type.getInternalName(UndeclaredThrowableException.class);
+
+	private static final String FACTORY = Type.getInternalName(ProxyFactory.class);
+
+	private static final String DESCRIPTOR = Type.getInternalName(RpcMethodDescriptor.class);
+
+	private static final String FACTORY_DESC = Type.getDescriptor(ProxyFactory.class);
+
+	private static final String DESCRIPTORS_DESC = Type.getDescriptor(RpcMethodDescriptor[].class);
+
+	private static final String INVOKE_DESC = "(" + Type.getDescriptor(RpcMethodDescriptor.class) + "[Ljava/lang/Object;)"
+			+ Type.getDescriptor(Object.class);
+
+	private static final String WRITER = Type.getInternalName(PrimitiveWriter.class);
+
+	private static final String INVOKE_PACKED_DESC = "(" + Type.getDescriptor(RpcMethodDescriptor.class)
+			+ "[B[Ljava/lang/Object;)" + Type.getDescriptor(Object.class);
+
+	private BytecodeStubGenerator() {
+	}
+
+	/**
+	 * 生成并实例化服务接口的实现类
+	 *
+	 * @param factory
+	 * @param serviceInterface
+	 * @param descriptors
+	 *            服务接口的全部方法
+	 * @return
+	 * @throws Exception
+	 *             接口或方法签名中的类型不是public时抛出IllegalArgumentException，由调用方退回JDK代理
+	 */
+	static Object generate(ProxyFactory factory, Class<?> serviceInterface, List<RpcMethodDescriptor> descriptors)
+			throws Exception {
+		if (!Modifier.isPublic(serviceInterface.getModifiers())) {
+			throw new IllegalArgumentException("Service interface [" + serviceInterface.getName()
+					+ "] must be public");
+		}
+		// 父接口中可能声明了签名相同的方法，只生成一次
+		List<RpcMethodDescriptor> stubMethods = new ArrayList<RpcMethodDescriptor>(descriptors.size());
+		Set<String> signatures = new HashSet<String>();
+		for (RpcMethodDescriptor descriptor : descriptors) {
+			Method method = descriptor.getMethod();
+			checkSignature(method);
+			if (signatures.add(method.getName() + Type.getMethodDescriptor(method))) {
+				stubMethods.add(descriptor);
+			}
+		}
+
+		String className = serviceInterface.getName() + STUB_SUFFIX + STUB_COUNTER.getAndIncrement();
+		byte[] bytecode = generateClass(className.replace('.', '/'), serviceInterface, stubMethods);
+		Class<?> stubClass = new StubClassLoader(serviceInterface.getClassLoader()).define(className, bytecode);
+		return stubClass.getConstructor(ProxyFactory.class, RpcMethodDescriptor[].class).newInstance(factory,
+				stubMethods.toArray(new RpcMethodDescriptor[stubMethods.size()]));
+	}
+
+	/**
+	 * 实现类由单独的ClassLoader定义，与服务接口不在同一运行时包内，只能访问public类型
+	 *
+	 * @param method
+	 */
+	private static void checkSignature(Method method) {
+		checkPublic(method.getReturnType(), method);
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			checkPublic(parameterType, method);
+		}
+		for (Class<?> exceptionType : method.getExceptionTypes()) {
+			checkPublic(exceptionType, method);
+		}
+	}
+
+	private static void checkPublic(Class<?> type, Method method) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (!type.isPrimitive() && !Modifier.isPublic(type.getModifiers())) {
+			throw new IllegalArgumentException("Type [" + type.getName() + "] in method [" + method
+					+ "] must be public");
+		}
+	}
+
+	private static byte[] generateClass(String internalName, Class<?> serviceInterface,
+			List<RpcMethodDescriptor> stubMethods) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, OBJECT,
+				new String[] { Type.getInternalName(serviceInterface) });
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, "factory", FACTORY_DESC, null, null).visitEnd();
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, "descriptors", DESCRIPTORS_DESC, null, null).visitEnd();
+
+		generateConstructor(cw, internalName);
+		for (int i = 0; i < stubMethods.size(); i++) {
+			generateMethod(cw, internalName, stubMethods.get(i), i);
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void generateConstructor(ClassWriter cw, String internalName) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + FACTORY_DESC + DESCRIPTORS_DESC + ")V", null,
+				null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, internalName, "factory", FACTORY_DESC);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitFieldInsn(PUTFIELD, internalName, "descriptors", DESCRIPTORS_DESC);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateMethod(ClassWriter cw, String internalName, RpcMethodDescriptor descriptor,
+			int index) {
+		Method method = descriptor.getMethod();
+		Type[] argumentTypes = Type.getArgumentTypes(method);
+		Type returnType = Type.getReturnType(method);
+		Class<?>[] exceptionTypes = method.getExceptionTypes();
+		String[] exceptions = new String[exceptionTypes.length];
+		for (int i = 0; i < exceptionTypes.length; i++) {
+			exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+		}
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null,
+				exceptions);
+		mv.visitCode();
+		Label tryStart = new Label();
+		Label tryEnd = new Label();
+		Label rethrow = new Label();
+		Label undeclared = new Label();
+		// 按顺序匹配：非受检异常和声明的异常原样抛出，其余包装
+		mv.visitTryCatchBlock(tryStart, tryEnd, rethrow, "java/lang/RuntimeException");
+		mv.visitTryCatchBlock(tryStart, tryEnd, rethrow, "java/lang/Error");
+		for (String exception : exceptions) {
+			mv.visitTryCatchBlock(tryStart, tryEnd, rethrow, exception);
+		}
+		mv.visitTryCatchBlock(tryStart, tryEnd, undeclared, "java/lang/Throwable");
+		mv.visitLabel(tryStart);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, "factory", FACTORY_DESC);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, "descriptors", DESCRIPTORS_DESC);
+		pushInt(mv, index);
+		mv.visitInsn(AALOAD);
+		if (descriptor.isPackPrimitives()) {
+			invokePacked(mv, argumentTypes);
+		} else {
+			invoke(mv, argumentTypes);
+		}
+		unboxAndReturn(mv, returnType);
+		mv.visitLabel(tryEnd);
+		mv.visitLabel(rethrow);
+		mv.visitInsn(ATHROW);
+		// throw new UndeclaredThrowableException(e)
+		mv.visitLabel(undeclared);
+		mv.visitTypeInsn(NEW, UNDECLARED);
+		mv.visitInsn(DUP_X1);
+		mv.visitInsn(SWAP);
+		mv.visitMethodInsn(INVOKESPECIAL, UNDECLARED, "<init>", "(Ljava/lang/Throwable;)V", false);
+		mv.visitInsn(ATHROW);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * factory.invoke(descriptor, new Object[] { args... })，栈上已有factory和descriptor
+	 */
+	private static void invoke(MethodVisitor mv, Type[] argumentTypes) {
+		pushInt(mv, argumentTypes.length);
+		mv.visitTypeInsn(ANEWARRAY, OBJECT);
+		int slot = 1;
+		for (int i = 0; i < argumentTypes.length; i++) {
+			mv.visitInsn(DUP);
+			pushInt(mv, i);
+			mv.visitVarInsn(argumentTypes[i].getOpcode(ILOAD), slot);
+			box(mv, argumentTypes[i]);
+			mv.visitInsn(AASTORE);
+			slot += argumentTypes[i].getSize();
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, FACTORY, "invoke", INVOKE_DESC, false);
+	}
+
+	/**
+	 * factory.invokePacked(descriptor, packed, new Object[] { objectArgs... })，栈上已有factory和descriptor；
+	 * 基本类型参数按签名顺序写入descriptor.newPrimitiveWriter()，全部为基本类型时objects为null
+	 */
+	private static void invokePacked(MethodVisitor mv, Type[] argumentTypes) {
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKEVIRTUAL, DESCRIPTOR, "newPrimitiveWriter", "()L" + WRITER + ";", false);
+		int objectCount = 0;
+		int slot = 1;
+		for (Type argumentType : argumentTypes) {
+			if (wrapperOf(argumentType) != null) {
+				mv.visitInsn(DUP);
+				mv.visitVarInsn(argumentType.getOpcode(ILOAD), slot);
+				String typeName = argumentType.getClassName();
+				mv.visitMethodInsn(INVOKEVIRTUAL, WRITER, "write" + Character.toUpperCase(typeName.charAt(0))
+						+ typeName.substring(1), "(" + argumentType.getDescriptor() + ")V", false);
+			} else {
+				objectCount++;
+			}
+			slot += argumentType.getSize();
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, WRITER, "toByteArray", "()[B", false);
+		if (objectCount == 0) {
+			mv.visitInsn(ACONST_NULL);
+		} else {
+			pushInt(mv, objectCount);
+			mv.visitTypeInsn(ANEWARRAY, OBJECT);
+			int j = 0;
+			slot = 1;
+			for (Type argumentType : argumentTypes) {
+				if (wrapperOf(argumentType) == null) {
+					mv.visitInsn(DUP);
+					pushInt(mv, j++);
+					mv.visitVarInsn(ALOAD, slot);
+					mv.visitInsn(AASTORE);
+				}
+				slot += argumentType.getSize();
+			}
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, FACTORY, "invokePacked", INVOKE_PACKED_DESC, false);
+	}
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	private static void box(MethodVisitor mv, Type type) {
+		String wrapper = wrapperOf(type);
+		if (wrapper != null) {
+			mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";",
+					false);
+		}
+	}
+
+	private static void unboxAndReturn(MethodVisitor mv, Type type) {
+		if (type.getSort() == Type.VOID) {
+			mv.visitInsn(POP);
+			mv.visitInsn(RETURN);
+			return;
+		}
+		String wrapper = wrapperOf(type);
+		if (wrapper != null) {
+			mv.visitTypeInsn(CHECKCAST, wrapper);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(),
+					false);
+		} else if (!OBJECT.equals(type.getInternalName())) {
+			mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+		}
+		mv.visitInsn(type.getOpcode(IRETURN));
+	}
+
+	/**
+	 * 基本类型对应的包装类，非基本类型返回null
+	 *
+	 * @param type
+	 * @return
+	 */
+	private static String wrapperOf(Type type) {
+		switch (type.getSort()) {
+		case Type.BOOLEAN:
+			return "java/lang/Boolean";
+		case Type.CHAR:
+			return "java/lang/Character";
+		case Type.BYTE:
+			return "java/lang/Byte";
+		case Type.SHORT:
+			return "java/lang/Short";
+		case Type.INT:
+			return "java/lang/Integer";
+		case Type.FLOAT:
+			return "java/lang/Float";
+		case Type.LONG:
+			return "java/lang/Long";
+		case Type.DOUBLE:
+			return "java/lang/Double";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * 优先从服务接口的ClassLoader加载，找不到时(如rpc-jms-client位于父加载器之外)再使用框架自身的ClassLoader
+	 */
+	private static class StubClassLoader extends ClassLoader {
+
+		StubClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String className, byte[] bytecode) {
+			return defineClass(className, bytecode, 0, bytecode.length, ProxyFactory.class.getProtectionDomain());
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			return ProxyFactory.class.getClassLoader().loadClass(name);
+		}
+	}
+
+}
@@ -1,19 +1,67 @@
 package zh.rpc.jms.client.proxy;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import zh.rpc.jms.client.RpcProxyBean;
+import zh.rpc.jms.client.breaker.CircuitBreaker;
+import zh.rpc.jms.client.cache.CallCoalescer;
+import zh.rpc.jms.client.cache.CallKey;
+import zh.rpc.jms.client.cache.ResultCache;
+import zh.rpc.jms.client.cache.ResultCache.CacheEntry;
+import zh.rpc.jms.client.remote.RpcFuture;
 import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.exception.RpcCircuitOpenException;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.exception.RpcRejectedException;
+import zh.rpc.jms.common.util.MethodTable;
 
 public class ProxyFactory implements IProxy, InvocationHandler {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProxyFactory.class);
+
+	/**
+	 * 服务代理的生成方式
+	 */
+	public enum Generator {
+		// java.lang.reflect.Proxy
+		JDK,
+		// 使用ASM生成服务接口的实现类，失败时退回JDK
+		BYTECODE
+	}
+
 	private RpcProxyBean proxyBean;
 
+	// 服务接口方法及其预先计算的调用信息
+	private Map<Method, RpcMethodDescriptor> descriptors = new HashMap<Method, RpcMethodDescriptor>();
+
+	// 按接口方法顺序排列，生成的实现类按下标取用
+	private List<RpcMethodDescriptor> orderedDescriptors = new ArrayList<RpcMethodDescriptor>();
+
 	public ProxyFactory(RpcProxyBean proxyBean) {
 		this.proxyBean = proxyBean;
+		String interfaceName = proxyBean.getServiceInterface().getName();
+		MethodTable methodTable = proxyBean.isCompactHeader() ? MethodTable.of(proxyBean.getServiceInterface())
+				: null;
+		for (Method method : proxyBean.getServiceInterface().getMethods()) {
+			RpcMethodDescriptor descriptor = new RpcMethodDescriptor(method, interfaceName,
+					proxyBean.getServiceVesion(), methodTable, proxyBean.isPackPrimitives(),
+					proxyBean.getResultCache(method), proxyBean.getLatencyTracker(method),
+					proxyBean.getCircuitBreaker(method));
+			descriptors.put(method, descriptor);
+			orderedDescriptors.add(descriptor);
+		}
 	}
 
 	@Override
@@ -22,19 +70,247 @@ public class ProxyFactory implements IProxy, InvocationHandler {
 				new Class<?>[] { proxyBean.getServiceInterface() }, this);
 	}
 
+	/**
+	 * 按指定方式创建服务代理，生成字节码失败时退回JDK代理
+	 * 
+	 * @param generator
+	 * @return
+	 */
+	public Object getProxy(Generator generator) {
+		if (generator == Generator.BYTECODE) {
+			try {
+				return BytecodeStubGenerator.generate(this, proxyBean.getServiceInterface(), orderedDescriptors);
+			} catch (Throwable ex) {
+				LOGGER.warn("Could not generate bytecode stub for [" + proxyBean.getServiceInterface().getName()
+						+ "], falling back to JDK proxy", ex);
+			}
+		}
+		return getProxy();
+	}
+
+	/**
+	 * 创建异步代理：asyncInterface中的方法与服务接口方法同名同参数，返回值为Future
+	 *
+	 * @param asyncInterface
+	 * @return
+	 */
+	public Object getAsyncProxy(Class<?> asyncInterface) {
+		final Map<Method, RpcMethodDescriptor> methodMapping = new HashMap<Method, RpcMethodDescriptor>();
+		for (Method asyncMethod : asyncInterface.getMethods()) {
+			if (!asyncMethod.getReturnType().isAssignableFrom(RpcFuture.class)) {
+				throw new IllegalArgumentException("Async method [" + asyncMethod + "] must return "
+						+ Future.class.getName());
+			}
+			try {
+				Method serviceMethod = proxyBean.getServiceInterface().getMethod(asyncMethod.getName(),
+						asyncMethod.getParameterTypes());
+				methodMapping.put(asyncMethod, descriptors.get(serviceMethod));
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException("Async method [" + asyncMethod + "] has no counterpart in "
+						+ proxyBean.getServiceInterface().getName(), e);
+			}
+		}
+		return Proxy.newProxyInstance(asyncInterface.getClassLoader(), new Class<?>[] { asyncInterface },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getDeclaringClass() == Object.class) {
+							return method.invoke(this, args);
+						}
+						return proxyBean.invokeAsync(methodMapping.get(method).createRequest(args));
+					}
+				});
+	}
+
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-		Object retVal = null;
-		RpcRequest request = new RpcRequest();
-		request.setRequestId(UUID.randomUUID().toString());
-		request.setInterfaceName(method.getDeclaringClass().getName());
-		request.setServiceVersion(proxyBean.getServiceVesion());
-		request.setMethodName(method.getName());
-		request.setParameterTypes(method.getParameterTypes());
-		request.setParameters(args);
-
-		retVal = proxyBean.invoke(request);
+		RpcMethodDescriptor descriptor = descriptors.get(method);
+		if (descriptor == null) {
+			if (method.getDeclaringClass() == Object.class) {
+				return method.invoke(this, args);
+			}
+			throw new RpcJmsException("Method [" + method + "] is not a remote method of "
+					+ proxyBean.getServiceInterface().getName());
+		}
+		return invoke(descriptor, args);
+	}
+
+	/**
+	 * 单向方法直接发送；其他方法依次经过结果缓存、并发调用合并后发起远程调用
+	 * 
+	 * @param descriptor
+	 * @param args
+	 * @return
+	 * @throws Throwable
+	 */
+	public Object invoke(final RpcMethodDescriptor descriptor, final Object[] args) throws Throwable {
+		if (descriptor.isOneWay()) {
+			proxyBean.invokeOneWay(descriptor.createRequest(args));
+			return null;
+		}
+		ResultCache resultCache = descriptor.getResultCache();
+		CallCoalescer callCoalescer = proxyBean.getCallCoalescer();
+		if (resultCache == null && callCoalescer == null) {
+			return doInvoke(descriptor, descriptor.createRequest(args), false);
+		}
+		CallKey key = descriptor.createKey(args);
+		if (resultCache != null) {
+			CacheEntry entry = resultCache.get(key);
+			if (entry != null) {
+				return entry.getValue();
+			}
+		}
+		Object retVal;
+		if (callCoalescer != null) {
+			retVal = callCoalescer.execute(key, new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return invokeRemote(descriptor, args);
+				}
+			});
+		} else {
+			retVal = doInvoke(descriptor, descriptor.createRequest(args), true);
+		}
+		if (retVal instanceof FallbackResult) {
+			// 降级结果不缓存，服务恢复后的调用重新访问服务端
+			return ((FallbackResult) retVal).value;
+		}
+		if (resultCache != null) {
+			resultCache.put(key, retVal);
+		}
 		return retVal;
 	}
 
+	/**
+	 * 生成的服务代理调用基本类型参数已编码的方法，参数不经过装箱；开启结果缓存或调用合并时还原参数后按invoke处理
+	 * 
+	 * @param descriptor
+	 * @param packed
+	 *            按签名顺序编码的基本类型参数
+	 * @param objects
+	 *            其余参数，没有时为null
+	 * @return
+	 * @throws Throwable
+	 */
+	public Object invokePacked(RpcMethodDescriptor descriptor, byte[] packed, Object[] objects) throws Throwable {
+		RpcRequest request = descriptor.createPackedRequest(packed, objects);
+		if (descriptor.isOneWay()) {
+			proxyBean.invokeOneWay(request);
+			return null;
+		}
+		if (descriptor.getResultCache() != null || proxyBean.getCallCoalescer() != null) {
+			return invoke(descriptor, descriptor.getArguments(request));
+		}
+		return doInvoke(descriptor, request, false);
+	}
+
+	/**
+	 * 远程调用，非Exception的Throwable包装为RpcJmsException；熔断时返回以FallbackResult包装的降级结果
+	 * 
+	 * @param descriptor
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	private Object invokeRemote(RpcMethodDescriptor descriptor, Object[] args) throws Exception {
+		try {
+			return doInvoke(descriptor, descriptor.createRequest(args), true);
+		} catch (Exception e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RpcJmsException(e);
+		}
+	}
+
+	/**
+	 * 经过熔断器发起远程调用，超时和JMS访问失败计入熔断统计，服务端抛出的业务异常和客户端流控拒绝不计入
+	 * 
+	 * @param descriptor
+	 * @param request
+	 * @param markFallback
+	 *            熔断时是否以FallbackResult包装降级结果，供调用方区分降级结果和远程调用结果
+	 * @return
+	 * @throws Throwable
+	 */
+	private Object doInvoke(RpcMethodDescriptor descriptor, RpcRequest request, boolean markFallback)
+			throws Throwable {
+		CircuitBreaker circuitBreaker = descriptor.getCircuitBreaker();
+		if (circuitBreaker == null) {
+			return doRemoteInvoke(descriptor, request);
+		}
+		if (!circuitBreaker.tryAcquire()) {
+			Object fallbackValue = invokeFallback(descriptor, request);
+			return markFallback ? new FallbackResult(fallbackValue) : fallbackValue;
+		}
+		long startTime = System.nanoTime();
+		try {
+			Object retVal = doRemoteInvoke(descriptor, request);
+			circuitBreaker.onSuccess(System.nanoTime() - startTime);
+			return retVal;
+		} catch (RpcRejectedException e) {
+			circuitBreaker.onIgnored();
+			throw e;
+		} catch (RpcJmsException e) {
+			circuitBreaker.onFailure();
+			throw e;
+		} catch (Throwable e) {
+			circuitBreaker.onSuccess(System.nanoTime() - startTime);
+			throw e;
+		}
+	}
+
+	/**
+	 * 熔断时调用降级实现，未配置时抛出RpcCircuitOpenException
+	 * 
+	 * @param descriptor
+	 * @param request
+	 * @return
+	 * @throws Throwable
+	 */
+	private Object invokeFallback(RpcMethodDescriptor descriptor, RpcRequest request) throws Throwable {
+		Object fallback = proxyBean.getFallback();
+		if (fallback == null) {
+			throw new RpcCircuitOpenException("Circuit breaker [" + descriptor.getCircuitBreaker().getName()
+					+ "] is open");
+		}
+		try {
+			return descriptor.getMethod().invoke(fallback, descriptor.getArguments(request));
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+	/**
+	 * 发起远程调用，可备份的方法经由invokeHedged
+	 * 
+	 * @param descriptor
+	 * @param request
+	 * @return
+	 * @throws Throwable
+	 */
+	private Object doRemoteInvoke(RpcMethodDescriptor descriptor, RpcRequest request) throws Throwable {
+		if (descriptor.getLatencyTracker() != null) {
+			return proxyBean.invokeHedged(request, descriptor.getLatencyTracker());
+		}
+		return proxyBean.invoke(request);
+	}
+
+	public RpcMethodDescriptor getDescriptor(Method method) {
+		return descriptors.get(method);
+	}
+
+	/**
+	 * 熔断时降级实现返回的结果，不写入结果缓存
+	 */
+	private static class FallbackResult {
+
+		private final Object value;
+
+		FallbackResult(Object value) {
+			this.value = value;
+		}
+	}
+
 }
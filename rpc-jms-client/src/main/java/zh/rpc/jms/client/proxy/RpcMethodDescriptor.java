@@ -0,0 +1,206 @@
+package zh.rpc.jms.client.proxy;
+
+import java.lang.reflect.Method;
+
+import zh.rpc.jms.client.breaker.CircuitBreaker;
+import zh.rpc.jms.client.cache.CallKey;
+import zh.rpc.jms.client.cache.ResultCache;
+import zh.rpc.jms.client.hedge.LatencyTracker;
+import zh.rpc.jms.common.annotation.RpcOneWay;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.serializer.PrimitiveCodec;
+import zh.rpc.jms.common.serializer.PrimitiveWriter;
+import zh.rpc.jms.common.util.MethodTable;
+import zh.rpc.jms.common.util.RequestIdGenerator;
+
+/**
+ * 代理创建时为每个服务方法预先计算的调用信息，调用时不再反射获取方法名和参数类型
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcMethodDescriptor {
+
+	private final Method method;
+
+	private final String interfaceName;
+
+	private final String serviceVersion;
+
+	private final String methodName;
+
+	// 所有请求共享，不可修改
+	private final Class<?>[] parameterTypes;
+
+	private final String signature;
+
+	// 使用紧凑请求头时的方法编号和方法表摘要 否则为null
+	private final Integer methodId;
+
+	private final Integer methodDigest;
+
+	// 基本类型参数的紧凑编码 未开启或没有基本类型参数时为null
+	private final PrimitiveCodec primitiveCodec;
+
+	// 开启基本类型编码且返回值为基本类型时，要求服务端单独编码返回值
+	private final boolean packResult;
+
+	private final ResultCache resultCache;
+
+	// 可发送备份请求时的时延统计 可为null
+	private final LatencyTracker latencyTracker;
+
+	// 开启熔断时的熔断器 可为null
+	private final CircuitBreaker circuitBreaker;
+
+	// 标注了@RpcOneWay，不等待响应
+	private final boolean oneWay;
+
+	public RpcMethodDescriptor(Method method, String interfaceName, String serviceVersion, MethodTable methodTable,
+			boolean packPrimitives, ResultCache resultCache, LatencyTracker latencyTracker,
+			CircuitBreaker circuitBreaker) {
+		this.method = method;
+		this.interfaceName = interfaceName;
+		this.serviceVersion = serviceVersion;
+		this.methodName = method.getName();
+		this.parameterTypes = method.getParameterTypes();
+		this.signature = CallKey.signatureOf(method);
+		this.methodId = methodTable != null ? methodTable.getMethodId(method) : null;
+		this.methodDigest = methodTable != null ? Integer.valueOf(methodTable.getDigest()) : null;
+		this.primitiveCodec = packPrimitives ? PrimitiveCodec.forParameters(this.parameterTypes) : null;
+		this.packResult = packPrimitives && method.getReturnType().isPrimitive()
+				&& method.getReturnType() != void.class;
+		this.resultCache = resultCache;
+		this.latencyTracker = latencyTracker;
+		this.circuitBreaker = circuitBreaker;
+		this.oneWay = method.isAnnotationPresent(RpcOneWay.class);
+		if (this.oneWay && method.getReturnType() != void.class) {
+			throw new IllegalArgumentException("One-way method [" + method + "] must return void");
+		}
+	}
+
+	/**
+	 * 创建请求，使用紧凑请求头时以方法编号代替方法名和参数类型，基本类型参数按方法签名单独编码
+	 * 
+	 * @param args
+	 * @return
+	 */
+	public RpcRequest createRequest(Object[] args) {
+		RpcRequest request = newRequest();
+		if (primitiveCodec != null) {
+			request.setPrimitiveParameters(primitiveCodec.pack(args));
+			request.setParameters(primitiveCodec.objects(args));
+		} else {
+			request.setParameters(args);
+		}
+		return request;
+	}
+
+	/**
+	 * 由生成的服务代理已编码的参数创建请求
+	 * 
+	 * @param packed
+	 * @param objects
+	 * @return
+	 */
+	public RpcRequest createPackedRequest(byte[] packed, Object[] objects) {
+		RpcRequest request = newRequest();
+		request.setPrimitiveParameters(packed);
+		request.setParameters(objects);
+		return request;
+	}
+
+	/**
+	 * 创建写入基本类型参数的PrimitiveWriter，供生成的服务代理使用
+	 * 
+	 * @return
+	 */
+	public PrimitiveWriter newPrimitiveWriter() {
+		return primitiveCodec.newWriter();
+	}
+
+	/**
+	 * 还原请求的完整参数，用于降级调用等需要原始参数的场景
+	 * 
+	 * @param request
+	 * @return
+	 */
+	public Object[] getArguments(RpcRequest request) {
+		if (request.getPrimitiveParameters() == null) {
+			return request.getParameters();
+		}
+		return primitiveCodec.unpack(request.getPrimitiveParameters(), request.getParameters());
+	}
+
+	private RpcRequest newRequest() {
+		RpcRequest request = new RpcRequest();
+		request.setRequestId(RequestIdGenerator.nextId());
+		request.setInterfaceName(interfaceName);
+		request.setServiceVersion(serviceVersion);
+		if (methodId != null) {
+			request.setMethodId(methodId);
+			request.setMethodDigest(methodDigest);
+		} else {
+			request.setMethodName(methodName);
+			request.setParameterTypes(parameterTypes);
+		}
+		request.setPackResult(packResult);
+		return request;
+	}
+
+	/**
+	 * 创建调用标识，用于结果缓存和并发调用合并
+	 * 
+	 * @param args
+	 * @return
+	 */
+	public CallKey createKey(Object[] args) {
+		return CallKey.of(interfaceName, serviceVersion, signature, args);
+	}
+
+	/**
+	 * 是否单独编码基本类型参数
+	 * 
+	 * @return
+	 */
+	public boolean isPackPrimitives() {
+		return primitiveCodec != null;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public String getInterfaceName() {
+		return interfaceName;
+	}
+
+	public String getServiceVersion() {
+		return serviceVersion;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public String getSignature() {
+		return signature;
+	}
+
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	public LatencyTracker getLatencyTracker() {
+		return latencyTracker;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public boolean isOneWay() {
+		return oneWay;
+	}
+
+}
@@ -0,0 +1,9 @@
+package zh.rpc.jms.client.remote;
+
+import zh.rpc.jms.common.bean.RpcRequest;
+
+public interface IAsyncRemoteInvoker {
+
+	public RpcFuture invokeAsync(RpcRequest request);
+
+}
@@ -1,6 +1,9 @@
 package zh.rpc.jms.client.remote;
 
-import javax.jms.Connection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -10,17 +13,32 @@ import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.TemporaryQueue;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
+import zh.rpc.jms.client.flow.InFlightLimiter;
+import zh.rpc.jms.client.hedge.HedgeBudget;
+import zh.rpc.jms.client.hedge.LatencyTracker;
+import zh.rpc.jms.client.pool.JmsSessionPool;
+import zh.rpc.jms.client.pool.PooledSession;
+import zh.rpc.jms.common.bean.RpcBatchRequest;
 import zh.rpc.jms.common.bean.RpcRequest;
 import zh.rpc.jms.common.bean.RpcResponse;
 import zh.rpc.jms.common.converter.DefaultMessageConverter;
 import zh.rpc.jms.common.converter.MessageConverter;
-import zh.rpc.jms.common.util.ConnectionFactoryUtils;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.exception.RpcTimeoutException;
+import zh.rpc.jms.common.serializer.Serializer;
+import zh.rpc.jms.common.serializer.Serializers;
 import zh.rpc.jms.common.util.JmsUtils;
-import zh.rpc.jms.common.util.SerializationUtil;
+import zh.rpc.jms.common.util.MessageProperties;
+
+public class JmsInvoker implements IRemoteInvoker, IAsyncRemoteInvoker, IOneWayRemoteInvoker, InitializingBean,
+		DisposableBean {
 
-public class JmsInvoker implements IRemoteInvoker, InitializingBean {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JmsInvoker.class);
 
 	private ConnectionFactory connectionFactory;
 
@@ -35,27 +53,196 @@ public class JmsInvoker implements IRemoteInvoker, InitializingBean {
 	// 消息转换器
 	private MessageConverter messageConverter = new DefaultMessageConverter();
 
+	// 序列化方式 默认：protostuff
+	private Serializer serializer = Serializers.getDefault();
+
+	// 长连接数量 默认：1
+	private int poolMaxConnections = 1;
+
+	// 最小空闲Session数 默认：1
+	private int poolMinIdle = 1;
+
+	// 最大Session数 默认：8
+	private int poolMaxActive = 8;
+
+	// 获取Session最大等待时间(毫秒) 默认为0，一直等待
+	private long poolMaxWait = 0;
+
+	// Session空闲回收时间(毫秒) 默认：60秒
+	private long poolIdleTimeout = 60000;
+
+	// 空闲回收检测间隔(毫秒) 默认：30秒
+	private long poolEvictionInterval = 30000;
+
+	// 借出Session时是否校验 默认：true
+	private boolean poolTestOnBorrow = true;
+
+	private JmsSessionPool sessionPool;
+
+	// 是否使用共享回复队列 默认：false，每次调用创建TemporaryQueue
+	private boolean sharedReplyQueue = false;
+
+	// 共享回复队列超时扫描间隔(毫秒) 默认：50
+	private long replySweepInterval = 50;
+
+	private volatile ReplyDispatcher replyDispatcher;
+
+	// 批量发送的最大请求数 默认为0，不合并请求
+	private int batchSize = 0;
+
+	// 批量发送的最长等待时间(微秒) 默认：200
+	private long batchDelay = 200;
+
+	private RequestBatcher requestBatcher;
+
+	// 最大在途请求数 默认为0，不限制
+	private int maxInFlight = 0;
+
+	// 在途请求已满时的策略 默认：阻塞等待
+	private InFlightLimiter.Policy inFlightPolicy = InFlightLimiter.Policy.BLOCK;
+
+	// 阻塞等待在途窗口的最长时间(毫秒) 默认为0，一直等待
+	private long inFlightAcquireTimeout = 0;
+
+	// 在途窗口自适应算法 默认：固定窗口
+	private InFlightLimiter.Adaptive adaptiveInFlight = InFlightLimiter.Adaptive.NONE;
+
+	private InFlightLimiter inFlightLimiter;
+
+	// 单向调用每个事务提交的消息数 默认为0，不使用事务，逐条发送
+	private int oneWayCommitSize = 0;
+
+	// 单向调用事务的最长提交间隔(毫秒) 默认：10
+	private long oneWayCommitInterval = 10;
+
+	private OneWaySender oneWaySender;
+
+	// 是否对@RpcIdempotent方法发送备份请求 默认：false
+	private boolean hedgeRequests = false;
+
+	// 超过近期时延的该分位数(百分比)仍未返回时发送备份请求 默认：95
+	private double hedgePercentile = 95;
+
+	// 备份请求数占请求总数的最大比例 默认：0.05
+	private double hedgeMaxRatio = 0.05;
+
+	private HedgeBudget hedgeBudget;
+
 	@Override
 	public Object invoke(RpcRequest request) throws Throwable {
-		Connection con = createConnection();
-		Session session = null;
+		if (sharedReplyQueue || requestBatcher != null) {
+			return invokeWithSharedReplyQueue(request);
+		}
+		long acquireTime = inFlightLimiter != null ? inFlightLimiter.acquire() : 0;
+		boolean dropped = true;
+		PooledSession pooledSession = null;
+		boolean broken = false;
 		try {
-			session = createSession(con);
-			Message requestMessage = messageConverter.toMessage(SerializationUtil.serialize(request), session);
-			con.start();
-			Message responseMessage = doExecuteRequest(session, queue, requestMessage);
-			RpcResponse rpcResponse = SerializationUtil
-					.deserialize((byte[]) messageConverter.fromMessage(responseMessage), RpcResponse.class);
+			pooledSession = sessionPool.borrow();
+			Session session = pooledSession.getSession();
+			Message requestMessage = createRequestMessage(request, session);
+			Message responseMessage = doExecuteRequest(pooledSession, requestMessage);
+			if (responseMessage == null) {
+				throw new RpcTimeoutException("Receive timeout after " + getReceiveTimeout()
+						+ "ms on JMS invoker queue [" + this.queue + "]");
+			}
+			dropped = false;
+			RpcResponse rpcResponse = messageConverter.fromMessage(responseMessage,
+					Serializers.readCodec(responseMessage, serializer), RpcResponse.class);
 			if (rpcResponse.hasException()) {
 				throw rpcResponse.getException();
 			} else {
 				return rpcResponse.getResult();
 			}
 		} catch (JMSException e) {
-			throw new RuntimeException("Could not access JMS invoker queue [" + this.queue + "]", e);
+			broken = true;
+			throw new RpcJmsException("Could not access JMS invoker queue [" + this.queue + "]", e);
 		} finally {
-			JmsUtils.closeSession(session);
-			ConnectionFactoryUtils.releaseConnection(con);
+			sessionPool.release(pooledSession, broken);
+			if (inFlightLimiter != null) {
+				inFlightLimiter.release(acquireTime, dropped);
+			}
+		}
+	}
+
+	/**
+	 * 异步调用，响应统一由共享回复队列分发；未开启sharedReplyQueue时在首次异步调用时创建
+	 */
+	@Override
+	public RpcFuture invokeAsync(RpcRequest request) {
+		return sendRequest(request);
+	}
+
+	/**
+	 * 幂等方法的调用：等待超过近期时延分位数仍未返回且配额允许时，以相同requestId再发送一份请求，
+	 * 两份请求共用一个RpcFuture，先到达的响应完成调用，后到达的由ReplyDispatcher丢弃
+	 * 
+	 * @param request
+	 * @param latencyTracker
+	 *            该方法的时延统计
+	 * @return
+	 * @throws Throwable
+	 */
+	public Object invokeHedged(RpcRequest request, LatencyTracker latencyTracker) throws Throwable {
+		long startTime = System.nanoTime();
+		hedgeBudget.onRequest();
+		RpcFuture future = sendRequest(request);
+		try {
+			Object result;
+			long hedgeDelay = latencyTracker.getThreshold();
+			if (hedgeDelay > 0) {
+				try {
+					result = future.get(hedgeDelay, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					if (!future.isDone() && hedgeBudget.tryAcquire()) {
+						sendHedge(request, future);
+					}
+					result = future.get();
+				}
+			} else {
+				result = future.get();
+			}
+			latencyTracker.record(System.nanoTime() - startTime);
+			return result;
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 发送备份请求，失败时只记录日志，继续等待原请求
+	 * 
+	 * @param request
+	 * @param future
+	 */
+	private void sendHedge(RpcRequest request, RpcFuture future) {
+		try {
+			sendMessage(request, request.getRequestId(), false, future.getDeadline());
+		} catch (RuntimeException e) {
+			LOGGER.warn("Send of hedged request [" + request.getRequestId() + "] failed", e);
+		}
+	}
+
+	/**
+	 * 单向调用：不设置JMSReplyTo，发送后立即返回；开启oneWayCommitSize时在事务中批量提交
+	 */
+	@Override
+	public void invokeOneWay(RpcRequest request) {
+		if (oneWaySender != null) {
+			oneWaySender.send(request);
+			return;
+		}
+		PooledSession pooledSession = null;
+		boolean broken = false;
+		try {
+			pooledSession = sessionPool.borrow();
+			Message requestMessage = createRequestMessage(request, pooledSession.getSession());
+			sendWithDeadline(pooledSession.getProducer(), requestMessage, 0);
+		} catch (JMSException e) {
+			broken = true;
+			throw new RpcJmsException("Could not access JMS invoker queue [" + this.queue + "]", e);
+		} finally {
+			sessionPool.release(pooledSession, broken);
 		}
 	}
 
@@ -73,47 +260,259 @@ public class JmsInvoker implements IRemoteInvoker, InitializingBean {
 		if (this.priority < 0) {
 			throw new IllegalArgumentException("Property 'priority' Not less than '0'");
 		}
+		if (this.replySweepInterval <= 0) {
+			throw new IllegalArgumentException("Property 'replySweepInterval' must be greater than '0'");
+		}
+		if (this.maxInFlight < 0) {
+			throw new IllegalArgumentException("Property 'maxInFlight' Not less than '0'");
+		}
+		if (this.batchSize < 0) {
+			throw new IllegalArgumentException("Property 'batchSize' Not less than '0'");
+		}
+		if (this.batchDelay <= 0) {
+			throw new IllegalArgumentException("Property 'batchDelay' must be greater than '0'");
+		}
+		if (this.oneWayCommitSize < 0) {
+			throw new IllegalArgumentException("Property 'oneWayCommitSize' Not less than '0'");
+		}
+		if (this.oneWayCommitInterval <= 0) {
+			throw new IllegalArgumentException("Property 'oneWayCommitInterval' must be greater than '0'");
+		}
+		if (this.hedgeRequests) {
+			this.hedgeBudget = new HedgeBudget(hedgeMaxRatio);
+		}
+		this.sessionPool = createSessionPool();
+		if (this.maxInFlight > 0) {
+			this.inFlightLimiter = new InFlightLimiter(maxInFlight, inFlightPolicy, inFlightAcquireTimeout,
+					adaptiveInFlight);
+		}
+		if (this.sharedReplyQueue || this.batchSize > 1) {
+			getOrCreateReplyDispatcher();
+		}
+		if (this.batchSize > 1) {
+			this.requestBatcher = new RequestBatcher(this, batchSize, batchDelay);
+		}
+		if (this.oneWayCommitSize > 1) {
+			this.oneWaySender = new OneWaySender(connectionFactory, queue, messageConverter, serializer,
+					oneWayCommitSize, oneWayCommitInterval, priority);
+		}
 	}
 
-	protected Connection createConnection() throws JMSException {
-		ConnectionFactory cf = getConnectionFactory();
-		return cf.createConnection();
+	@Override
+	public void destroy() throws Exception {
+		if (this.oneWaySender != null) {
+			this.oneWaySender.close();
+		}
+		if (this.requestBatcher != null) {
+			this.requestBatcher.close();
+		}
+		if (this.replyDispatcher != null) {
+			this.replyDispatcher.close();
+		}
+		if (this.sessionPool != null) {
+			this.sessionPool.close();
+		}
 	}
 
-	protected Session createSession(Connection con) throws JMSException {
-		return con.createSession(false, Session.AUTO_ACKNOWLEDGE);
+	/**
+	 * 创建Session池，连接和Producer在调用之间复用
+	 * 
+	 * @return
+	 */
+	protected JmsSessionPool createSessionPool() {
+		JmsSessionPool pool = new JmsSessionPool(getConnectionFactory(), getQueue());
+		pool.setMaxConnections(poolMaxConnections);
+		pool.setMinIdle(poolMinIdle);
+		pool.setMaxActive(poolMaxActive);
+		pool.setMaxWait(poolMaxWait);
+		pool.setIdleTimeout(poolIdleTimeout);
+		pool.setEvictionInterval(poolEvictionInterval);
+		pool.setTestOnBorrow(poolTestOnBorrow);
+		pool.initialize();
+		return pool;
 	}
 
 	/**
-	 * 向jms消息队列发送消息
+	 * 获取共享回复队列分发器，不存在时创建
+	 * 
+	 * @return
+	 */
+	protected ReplyDispatcher getOrCreateReplyDispatcher() {
+		ReplyDispatcher dispatcher = this.replyDispatcher;
+		if (dispatcher == null) {
+			synchronized (this) {
+				dispatcher = this.replyDispatcher;
+				if (dispatcher == null) {
+					dispatcher = new ReplyDispatcher(getConnectionFactory(), messageConverter, serializer,
+							replySweepInterval);
+					dispatcher.start();
+					this.replyDispatcher = dispatcher;
+				}
+			}
+		}
+		return dispatcher;
+	}
+
+	/**
+	 * 通过共享回复队列完成同步调用，超时由ReplyDispatcher统一扫描
+	 * 
+	 * @param request
+	 * @return
+	 * @throws Throwable
+	 */
+	protected Object invokeWithSharedReplyQueue(RpcRequest request) throws Throwable {
+		RpcFuture future = sendRequest(request);
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 发送请求到jms消息队列，响应通过共享回复队列异步返回；开启批量时加入当前批次
+	 * 
+	 * @param request
+	 * @return
+	 */
+	protected RpcFuture sendRequest(RpcRequest request) {
+		ReplyDispatcher dispatcher = getOrCreateReplyDispatcher();
+		RpcFuture future = new RpcFuture(request.getRequestId(), getReceiveTimeout());
+		if (inFlightLimiter != null) {
+			final long acquireTime = inFlightLimiter.acquire();
+			future.addListener(new RpcFutureListener() {
+				@Override
+				public void operationComplete(RpcFuture completed) {
+					inFlightLimiter.release(acquireTime, completed.getCause() instanceof RpcTimeoutException);
+				}
+			});
+		}
+		dispatcher.register(future);
+		if (requestBatcher != null) {
+			requestBatcher.add(request, future);
+			return future;
+		}
+		try {
+			sendMessage(request, request.getRequestId(), false, future.getDeadline());
+		} catch (RuntimeException e) {
+			dispatcher.unregister(request.getRequestId());
+			future.fail(e);
+			throw e;
+		}
+		return future;
+	}
+
+	/**
+	 * 发送批量请求，批次内各请求的响应按requestId分发
 	 * 
+	 * @param batch
+	 * @param deadline
+	 *            批次中最早的截止时间
+	 */
+	protected void sendBatch(RpcBatchRequest batch, long deadline) {
+		sendMessage(batch, batch.getBatchId(), true, deadline);
+	}
+
+	/**
+	 * 发送消息到jms消息队列，回复地址为共享回复队列
+	 * 
+	 * @param payload
+	 * @param correlationId
+	 * @param batch
+	 * @param deadline
+	 */
+	private void sendMessage(Object payload, String correlationId, boolean batch, long deadline) {
+		ReplyDispatcher dispatcher = getOrCreateReplyDispatcher();
+		PooledSession pooledSession = null;
+		boolean broken = false;
+		try {
+			pooledSession = sessionPool.borrow();
+			Message requestMessage = createRequestMessage(payload, pooledSession.getSession());
+			requestMessage.setJMSReplyTo(dispatcher.getReplyQueue());
+			requestMessage.setJMSCorrelationID(correlationId);
+			if (batch) {
+				requestMessage.setBooleanProperty(MessageProperties.BATCH, true);
+			}
+			sendWithDeadline(pooledSession.getProducer(), requestMessage, deadline);
+		} catch (JMSException e) {
+			broken = true;
+			throw new RpcJmsException("Could not access JMS invoker queue [" + this.queue + "]", e);
+		} finally {
+			sessionPool.release(pooledSession, broken);
+		}
+	}
+
+	/**
+	 * 序列化请求并创建消息，消息属性中写入编码标识和路由信息
+	 * 
+	 * @param payload
 	 * @param session
-	 * @param queue
+	 * @return
+	 * @throws JMSException
+	 */
+	private Message createRequestMessage(Object payload, Session session) throws JMSException {
+		Message requestMessage = messageConverter.toMessage(payload, serializer, session);
+		Serializers.writeCodec(requestMessage, serializer);
+		if (payload instanceof RpcRequest) {
+			MessageProperties.writeRouting(requestMessage, (RpcRequest) payload);
+		} else if (payload instanceof RpcBatchRequest) {
+			// 同一个调用器的批量请求属于同一个服务，只写入接口和版本
+			RpcRequest first = ((RpcBatchRequest) payload).getRequests().get(0);
+			requestMessage.setStringProperty(MessageProperties.INTERFACE, first.getInterfaceName());
+			requestMessage.setStringProperty(MessageProperties.VERSION,
+					first.getServiceVersion() != null ? first.getServiceVersion() : "");
+			MessageProperties.writeBatchRequestIds(requestMessage, (RpcBatchRequest) payload);
+		}
+		return requestMessage;
+	}
+
+	/**
+	 * 向jms消息队列发送消息
+	 * 
+	 * @param pooledSession
 	 * @param requestMessage
 	 * @return
 	 * @throws JMSException
 	 */
-	protected Message doExecuteRequest(Session session, Queue queue, Message requestMessage) throws JMSException {
+	protected Message doExecuteRequest(PooledSession pooledSession, Message requestMessage) throws JMSException {
+		Session session = pooledSession.getSession();
 		TemporaryQueue responseQueue = null;
-		MessageProducer producer = null;
 		MessageConsumer consumer = null;
 		try {
 			responseQueue = session.createTemporaryQueue();
-			producer = session.createProducer(queue);
+			MessageProducer producer = pooledSession.getProducer();
 			consumer = session.createConsumer(responseQueue);
 			requestMessage.setJMSReplyTo(responseQueue);
-			requestMessage.setJMSPriority(priority);
-			producer.send(requestMessage);
-
 			long timeout = getReceiveTimeout();
+			sendWithDeadline(producer, requestMessage, timeout > 0 ? System.currentTimeMillis() + timeout : 0);
+
 			return (timeout > 0 ? consumer.receive(timeout) : consumer.receive());
 		} finally {
 			JmsUtils.closeMessageConsumer(consumer);
-			JmsUtils.closeMessageProducer(producer);
 			JmsUtils.deleteTemporaryQueue(responseQueue);
 		}
 	}
 
+	/**
+	 * 按调用截止时间设置消息有效期(JMSExpiration)及截止时间属性后发送，
+	 * 客户端已放弃等待的请求由broker或服务端直接丢弃
+	 * 
+	 * @param producer
+	 * @param requestMessage
+	 * @param deadline
+	 *            截止时间(毫秒) 0表示不过期
+	 * @throws JMSException
+	 */
+	protected void sendWithDeadline(MessageProducer producer, Message requestMessage, long deadline)
+			throws JMSException {
+		long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+		if (deadline > 0) {
+			requestMessage.setLongProperty(MessageProperties.DEADLINE, deadline);
+			timeToLive = Math.max(1, deadline - System.currentTimeMillis());
+		}
+		producer.send(requestMessage, producer.getDeliveryMode(), priority, timeToLive);
+	}
+
 	public ConnectionFactory getConnectionFactory() {
 		return connectionFactory;
 	}
@@ -146,4 +545,193 @@ public class JmsInvoker implements IRemoteInvoker, InitializingBean {
 		this.priority = priority;
 	}
 
+	public Serializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
+	public int getPoolMaxConnections() {
+		return poolMaxConnections;
+	}
+
+	public void setPoolMaxConnections(int poolMaxConnections) {
+		this.poolMaxConnections = poolMaxConnections;
+	}
+
+	public int getPoolMinIdle() {
+		return poolMinIdle;
+	}
+
+	public void setPoolMinIdle(int poolMinIdle) {
+		this.poolMinIdle = poolMinIdle;
+	}
+
+	public int getPoolMaxActive() {
+		return poolMaxActive;
+	}
+
+	public void setPoolMaxActive(int poolMaxActive) {
+		this.poolMaxActive = poolMaxActive;
+	}
+
+	public long getPoolMaxWait() {
+		return poolMaxWait;
+	}
+
+	public void setPoolMaxWait(long poolMaxWait) {
+		this.poolMaxWait = poolMaxWait;
+	}
+
+	public long getPoolIdleTimeout() {
+		return poolIdleTimeout;
+	}
+
+	public void setPoolIdleTimeout(long poolIdleTimeout) {
+		this.poolIdleTimeout = poolIdleTimeout;
+	}
+
+	public long getPoolEvictionInterval() {
+		return poolEvictionInterval;
+	}
+
+	public void setPoolEvictionInterval(long poolEvictionInterval) {
+		this.poolEvictionInterval = poolEvictionInterval;
+	}
+
+	public boolean isPoolTestOnBorrow() {
+		return poolTestOnBorrow;
+	}
+
+	public void setPoolTestOnBorrow(boolean poolTestOnBorrow) {
+		this.poolTestOnBorrow = poolTestOnBorrow;
+	}
+
+	public JmsSessionPool getSessionPool() {
+		return sessionPool;
+	}
+
+	public boolean isSharedReplyQueue() {
+		return sharedReplyQueue;
+	}
+
+	public void setSharedReplyQueue(boolean sharedReplyQueue) {
+		this.sharedReplyQueue = sharedReplyQueue;
+	}
+
+	public long getReplySweepInterval() {
+		return replySweepInterval;
+	}
+
+	public void setReplySweepInterval(long replySweepInterval) {
+		this.replySweepInterval = replySweepInterval;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getBatchDelay() {
+		return batchDelay;
+	}
+
+	public void setBatchDelay(long batchDelay) {
+		this.batchDelay = batchDelay;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public InFlightLimiter.Policy getInFlightPolicy() {
+		return inFlightPolicy;
+	}
+
+	public void setInFlightPolicy(InFlightLimiter.Policy inFlightPolicy) {
+		this.inFlightPolicy = inFlightPolicy;
+	}
+
+	public long getInFlightAcquireTimeout() {
+		return inFlightAcquireTimeout;
+	}
+
+	public void setInFlightAcquireTimeout(long inFlightAcquireTimeout) {
+		this.inFlightAcquireTimeout = inFlightAcquireTimeout;
+	}
+
+	public InFlightLimiter.Adaptive getAdaptiveInFlight() {
+		return adaptiveInFlight;
+	}
+
+	public void setAdaptiveInFlight(InFlightLimiter.Adaptive adaptiveInFlight) {
+		this.adaptiveInFlight = adaptiveInFlight;
+	}
+
+	public InFlightLimiter getInFlightLimiter() {
+		return inFlightLimiter;
+	}
+
+	public int getOneWayCommitSize() {
+		return oneWayCommitSize;
+	}
+
+	public void setOneWayCommitSize(int oneWayCommitSize) {
+		this.oneWayCommitSize = oneWayCommitSize;
+	}
+
+	public long getOneWayCommitInterval() {
+		return oneWayCommitInterval;
+	}
+
+	public void setOneWayCommitInterval(long oneWayCommitInterval) {
+		this.oneWayCommitInterval = oneWayCommitInterval;
+	}
+
+	public boolean isHedgeRequests() {
+		return hedgeRequests;
+	}
+
+	public void setHedgeRequests(boolean hedgeRequests) {
+		this.hedgeRequests = hedgeRequests;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	public double getHedgeMaxRatio() {
+		return hedgeMaxRatio;
+	}
+
+	public void setHedgeMaxRatio(double hedgeMaxRatio) {
+		this.hedgeMaxRatio = hedgeMaxRatio;
+	}
+
+	/**
+	 * 备份请求配额及统计，未开启hedgeRequests时返回null
+	 * 
+	 * @return
+	 */
+	public HedgeBudget getHedgeBudget() {
+		return hedgeBudget;
+	}
+
+	public ReplyDispatcher getReplyDispatcher() {
+		return replyDispatcher;
+	}
+
 }
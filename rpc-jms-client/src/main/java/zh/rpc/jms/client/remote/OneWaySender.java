@@ -0,0 +1,186 @@
+package zh.rpc.jms.client.remote;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.converter.MessageConverter;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.serializer.Serializer;
+import zh.rpc.jms.common.serializer.Serializers;
+import zh.rpc.jms.common.util.ConnectionFactoryUtils;
+import zh.rpc.jms.common.util.JmsUtils;
+import zh.rpc.jms.common.util.MessageProperties;
+
+/**
+ * 单向调用的事务发送：所有单向请求在同一个事务Session中发送，每commitSize条或每commitInterval毫秒提交一次，
+ * 减少broker的逐条确认；提交前连接断开时，未提交的请求丢失
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class OneWaySender implements ExceptionListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OneWaySender.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final Queue queue;
+
+	private final MessageConverter messageConverter;
+
+	private final Serializer serializer;
+
+	// 每个事务最多包含的消息数
+	private final int commitSize;
+
+	// 消息优先级
+	private final int priority;
+
+	private final ScheduledExecutorService committer;
+
+	private Connection connection;
+
+	private Session session;
+
+	private MessageProducer producer;
+
+	// 当前事务中未提交的消息数
+	private int uncommitted;
+
+	private boolean closed = false;
+
+	public OneWaySender(ConnectionFactory connectionFactory, Queue queue, MessageConverter messageConverter,
+			Serializer serializer, int commitSize, long commitInterval, int priority) {
+		this.connectionFactory = connectionFactory;
+		this.queue = queue;
+		this.messageConverter = messageConverter;
+		this.serializer = serializer;
+		this.commitSize = commitSize;
+		this.priority = priority;
+		this.committer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "rpc-jms-oneway-committer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.committer.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		}, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 在当前事务中发送，达到commitSize时提交
+	 *
+	 * @param request
+	 */
+	public void send(RpcRequest request) {
+		byte[] body = serializer.serialize(request);
+		synchronized (this) {
+			if (closed) {
+				throw new RpcJmsException("One-way sender is closed");
+			}
+			try {
+				if (session == null) {
+					establishSession();
+				}
+				Message requestMessage = messageConverter.toMessage(body, session);
+				Serializers.writeCodec(requestMessage, serializer);
+				MessageProperties.writeRouting(requestMessage, request);
+				producer.send(requestMessage, producer.getDeliveryMode(), priority, Message.DEFAULT_TIME_TO_LIVE);
+				if (++uncommitted >= commitSize) {
+					commit();
+				}
+			} catch (JMSException e) {
+				int lost = uncommitted;
+				releaseSession();
+				throw new RpcJmsException("Could not send one-way request to JMS queue [" + this.queue + "], "
+						+ lost + " uncommitted requests discarded", e);
+			}
+		}
+	}
+
+	/**
+	 * 提交未满commitSize的事务
+	 */
+	public synchronized void flush() {
+		if (uncommitted == 0 || session == null) {
+			return;
+		}
+		try {
+			commit();
+		} catch (JMSException e) {
+			LOGGER.error("Commit of " + uncommitted + " one-way requests failed", e);
+			releaseSession();
+		}
+	}
+
+	/**
+	 * 提交剩余消息后关闭连接
+	 */
+	public void close() {
+		committer.shutdownNow();
+		synchronized (this) {
+			flush();
+			releaseSession();
+			closed = true;
+		}
+	}
+
+	@Override
+	public void onException(JMSException ex) {
+		LOGGER.error("One-way sender connection broken", ex);
+		synchronized (this) {
+			releaseSession();
+		}
+	}
+
+	private void commit() throws JMSException {
+		session.commit();
+		uncommitted = 0;
+	}
+
+	private void establishSession() throws JMSException {
+		Connection con = connectionFactory.createConnection();
+		try {
+			con.setExceptionListener(this);
+			Session transactedSession = con.createSession(true, Session.SESSION_TRANSACTED);
+			this.producer = transactedSession.createProducer(queue);
+			this.session = transactedSession;
+			this.connection = con;
+		} catch (JMSException e) {
+			JmsUtils.closeConnection(con);
+			throw e;
+		}
+	}
+
+	private void releaseSession() {
+		JmsUtils.closeMessageProducer(producer);
+		JmsUtils.closeSession(session);
+		ConnectionFactoryUtils.releaseConnection(connection);
+		this.producer = null;
+		this.session = null;
+		this.connection = null;
+		this.uncommitted = 0;
+	}
+
+}
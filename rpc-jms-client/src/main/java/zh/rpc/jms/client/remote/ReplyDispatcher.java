@@ -0,0 +1,275 @@
+package zh.rpc.jms.client.remote;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.bean.RpcBatchResponse;
+import zh.rpc.jms.common.bean.RpcResponse;
+import zh.rpc.jms.common.converter.MessageConverter;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.exception.RpcTimeoutException;
+import zh.rpc.jms.common.serializer.Serializer;
+import zh.rpc.jms.common.serializer.Serializers;
+import zh.rpc.jms.common.util.ConnectionFactoryUtils;
+import zh.rpc.jms.common.util.JmsUtils;
+import zh.rpc.jms.common.util.MessageProperties;
+
+/**
+ * 客户端共享回复队列：每个客户端实例一个长期存在的TemporaryQueue和一个消费者，
+ * 根据JMSCorrelationID(或RpcResponse.requestId)将响应分发给等待的调用方
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class ReplyDispatcher implements MessageListener, ExceptionListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplyDispatcher.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final MessageConverter messageConverter;
+
+	// 回复消息未携带编码标识时使用的序列化方式
+	private final Serializer serializer;
+
+	// 超时扫描间隔(毫秒)
+	private final long sweepInterval;
+
+	private final Map<String, RpcFuture> pendingFutures = new ConcurrentHashMap<String, RpcFuture>();
+
+	private Connection connection;
+
+	private Session session;
+
+	private volatile TemporaryQueue replyQueue;
+
+	private MessageConsumer consumer;
+
+	private ScheduledExecutorService sweeper;
+
+	private volatile boolean closed = false;
+
+	public ReplyDispatcher(ConnectionFactory connectionFactory, MessageConverter messageConverter,
+			Serializer serializer, long sweepInterval) {
+		this.connectionFactory = connectionFactory;
+		this.messageConverter = messageConverter;
+		this.serializer = serializer;
+		this.sweepInterval = sweepInterval;
+	}
+
+	/**
+	 * 建立回复队列并启动超时扫描线程
+	 */
+	public void start() {
+		try {
+			synchronized (this) {
+				establishReplyQueue();
+			}
+		} catch (JMSException ex) {
+			LOGGER.error("Could not create reply queue on initialization - creating it lazily", ex);
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "rpc-jms-reply-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sweeper.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 登记一个等待响应的调用，调用被取消时自动取消登记
+	 *
+	 * @param future
+	 */
+	public void register(RpcFuture future) {
+		future.setDispatcher(this);
+		pendingFutures.put(future.getRequestId(), future);
+	}
+
+	/**
+	 * 取消登记，发送失败或调用被取消时调用
+	 *
+	 * @param requestId
+	 */
+	public void unregister(String requestId) {
+		pendingFutures.remove(requestId);
+	}
+
+	/**
+	 * 当前回复队列，连接重建后会变化
+	 *
+	 * @return
+	 * @throws JMSException
+	 */
+	public TemporaryQueue getReplyQueue() throws JMSException {
+		TemporaryQueue queue = this.replyQueue;
+		if (queue != null) {
+			return queue;
+		}
+		synchronized (this) {
+			if (closed) {
+				throw new RpcJmsException("Reply dispatcher is closed");
+			}
+			if (this.replyQueue == null) {
+				establishReplyQueue();
+			}
+			return this.replyQueue;
+		}
+	}
+
+	@Override
+	public void onMessage(Message message) {
+		try {
+			if (message.getBooleanProperty(MessageProperties.BATCH)) {
+				dispatchBatch(message);
+				return;
+			}
+			String correlationId = message.getJMSCorrelationID();
+			RpcFuture future = correlationId != null ? pendingFutures.remove(correlationId) : null;
+			RpcResponse response = messageConverter.fromMessage(message, Serializers.readCodec(message, serializer),
+					RpcResponse.class);
+			if (future == null && response.getRequestId() != null) {
+				future = pendingFutures.remove(response.getRequestId());
+			}
+			if (future == null) {
+				LOGGER.debug("Discard reply for unknown, expired or duplicate request [" + response.getRequestId() + "]");
+				return;
+			}
+			future.complete(response);
+		} catch (Throwable ex) {
+			LOGGER.error("Dispatch of JMS reply message failed", ex);
+		}
+	}
+
+	/**
+	 * 拆分批量响应，按requestId逐个完成调用
+	 *
+	 * @param message
+	 * @throws JMSException
+	 */
+	private void dispatchBatch(Message message) throws JMSException {
+		RpcBatchResponse batchResponse = messageConverter.fromMessage(message,
+				Serializers.readCodec(message, serializer), RpcBatchResponse.class);
+		if (batchResponse.getResponses() == null) {
+			return;
+		}
+		for (RpcResponse response : batchResponse.getResponses()) {
+			RpcFuture future = pendingFutures.remove(response.getRequestId());
+			if (future == null) {
+				LOGGER.debug("Discard reply for unknown, expired or duplicate request [" + response.getRequestId() + "]");
+				continue;
+			}
+			future.complete(response);
+		}
+	}
+
+	@Override
+	public void onException(JMSException ex) {
+		LOGGER.error("Reply queue connection broken, failing pending requests", ex);
+		synchronized (this) {
+			releaseReplyQueue();
+		}
+		failAll(new RpcJmsException("Reply queue connection broken", ex));
+	}
+
+	/**
+	 * 关闭回复队列，所有未完成的调用以异常结束
+	 */
+	public void close() {
+		closed = true;
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+		}
+		synchronized (this) {
+			releaseReplyQueue();
+		}
+		failAll(new RpcJmsException("Reply dispatcher is closed"));
+	}
+
+	public int getPendingCount() {
+		return pendingFutures.size();
+	}
+
+	private void establishReplyQueue() throws JMSException {
+		Connection con = connectionFactory.createConnection();
+		try {
+			con.setExceptionListener(this);
+			Session replySession = con.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			TemporaryQueue queue = replySession.createTemporaryQueue();
+			MessageConsumer replyConsumer = replySession.createConsumer(queue);
+			replyConsumer.setMessageListener(this);
+			con.start();
+			this.connection = con;
+			this.session = replySession;
+			this.replyQueue = queue;
+			this.consumer = replyConsumer;
+		} catch (JMSException e) {
+			JmsUtils.closeConnection(con);
+			throw e;
+		}
+	}
+
+	private void releaseReplyQueue() {
+		JmsUtils.closeMessageConsumer(consumer);
+		JmsUtils.deleteTemporaryQueue(replyQueue);
+		JmsUtils.closeSession(session);
+		ConnectionFactoryUtils.releaseConnection(connection);
+		this.consumer = null;
+		this.replyQueue = null;
+		this.session = null;
+		this.connection = null;
+	}
+
+	private void failAll(Throwable cause) {
+		Iterator<RpcFuture> it = pendingFutures.values().iterator();
+		while (it.hasNext()) {
+			RpcFuture future = it.next();
+			it.remove();
+			future.fail(cause);
+		}
+	}
+
+	/**
+	 * 扫描并结束已超时的调用，顺带移除已在别处结束的调用
+	 */
+	private void sweep() {
+		long now = System.currentTimeMillis();
+		Iterator<RpcFuture> it = pendingFutures.values().iterator();
+		while (it.hasNext()) {
+			RpcFuture future = it.next();
+			if (future.isDone()) {
+				it.remove();
+			} else if (future.isExpired(now)) {
+				it.remove();
+				future.fail(new RpcTimeoutException("Receive timeout on rpc request [" + future.getRequestId() + "]"));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+package zh.rpc.jms.client.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.bean.RpcBatchRequest;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.util.RequestIdGenerator;
+
+/**
+ * 客户端请求合并：攒够batchSize个请求或等待batchDelay微秒后，合并为一条批量消息发送
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class RequestBatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestBatcher.class);
+
+	private final JmsInvoker invoker;
+
+	// 单批最大请求数
+	private final int batchSize;
+
+	// 最长攒批时间(微秒)
+	private final long batchDelay;
+
+	private final ScheduledExecutorService flusher;
+
+	private List<RpcRequest> requests;
+
+	private List<RpcFuture> futures;
+
+	public RequestBatcher(JmsInvoker invoker, int batchSize, long batchDelay) {
+		this.invoker = invoker;
+		this.batchSize = batchSize;
+		this.batchDelay = batchDelay;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "rpc-jms-batch-flusher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * 加入当前批次，首个请求负责启动定时发送，批次满时由当前线程立即发送
+	 *
+	 * @param request
+	 * @param future
+	 */
+	public void add(RpcRequest request, RpcFuture future) {
+		List<RpcRequest> fullRequests = null;
+		List<RpcFuture> fullFutures = null;
+		synchronized (this) {
+			if (requests == null) {
+				requests = new ArrayList<RpcRequest>(batchSize);
+				futures = new ArrayList<RpcFuture>(batchSize);
+				final List<RpcRequest> scheduled = requests;
+				flusher.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush(scheduled);
+					}
+				}, batchDelay, TimeUnit.MICROSECONDS);
+			}
+			requests.add(request);
+			futures.add(future);
+			if (requests.size() >= batchSize) {
+				fullRequests = requests;
+				fullFutures = futures;
+				requests = null;
+				futures = null;
+			}
+		}
+		if (fullRequests != null) {
+			send(fullRequests, fullFutures);
+		}
+	}
+
+	/**
+	 * 停止定时发送，未发送的请求立即发出
+	 */
+	public void close() {
+		flusher.shutdownNow();
+		List<RpcRequest> pendingRequests;
+		List<RpcFuture> pendingFutures;
+		synchronized (this) {
+			pendingRequests = requests;
+			pendingFutures = futures;
+			requests = null;
+			futures = null;
+		}
+		if (pendingRequests != null) {
+			send(pendingRequests, pendingFutures);
+		}
+	}
+
+	/**
+	 * 定时发送，批次已因攒满而发出时忽略
+	 *
+	 * @param scheduled
+	 */
+	private void flush(List<RpcRequest> scheduled) {
+		List<RpcFuture> pendingFutures;
+		synchronized (this) {
+			if (requests != scheduled) {
+				return;
+			}
+			pendingFutures = futures;
+			requests = null;
+			futures = null;
+		}
+		send(scheduled, pendingFutures);
+	}
+
+	/**
+	 * 每个请求带上各自的截止时间，服务端跳过已过期的请求；整条消息的截止时间取其中最晚的，有不限时的请求时不限
+	 *
+	 * @param batchRequests
+	 * @param batchFutures
+	 */
+	private void send(List<RpcRequest> batchRequests, List<RpcFuture> batchFutures) {
+		long[] deadlines = new long[batchFutures.size()];
+		long batchDeadline = 0;
+		for (int i = 0; i < deadlines.length; i++) {
+			deadlines[i] = batchFutures.get(i).getDeadline();
+			if (deadlines[i] == 0) {
+				batchDeadline = -1;
+			} else if (batchDeadline >= 0) {
+				batchDeadline = Math.max(batchDeadline, deadlines[i]);
+			}
+		}
+		RpcBatchRequest batch = new RpcBatchRequest();
+		batch.setBatchId(RequestIdGenerator.nextId());
+		batch.setRequests(batchRequests);
+		batch.setDeadlines(deadlines);
+		try {
+			invoker.sendBatch(batch, Math.max(0, batchDeadline));
+		} catch (Throwable ex) {
+			LOGGER.error("Send of batch [" + batch.getBatchId() + "] with " + batchRequests.size()
+					+ " requests failed", ex);
+			for (RpcFuture future : batchFutures) {
+				invoker.getReplyDispatcher().unregister(future.getRequestId());
+				future.fail(ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package zh.rpc.jms.client.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.common.bean.RpcResponse;
+
+/**
+ * 一次远程调用的结果，由ReplyDispatcher在收到响应或超时后完成
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcFuture implements Future<Object> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RpcFuture.class);
+
+	private final String requestId;
+
+	// 超时截止时间(毫秒) 0表示不超时
+	private final long deadline;
+
+	private final CountDownLatch latch = new CountDownLatch(1);
+
+	private final AtomicBoolean done = new AtomicBoolean(false);
+
+	private volatile Object result;
+
+	private volatile Throwable exception;
+
+	private volatile boolean cancelled;
+
+	private List<RpcFutureListener> listeners;
+
+	// 登记了本调用的回复分发器，取消时从中移除
+	private volatile ReplyDispatcher dispatcher;
+
+	public RpcFuture(String requestId, long timeout) {
+		this.requestId = requestId;
+		this.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+	}
+
+	/**
+	 * 根据服务端响应完成调用
+	 *
+	 * @param response
+	 * @return 是否由本次调用完成
+	 */
+	public boolean complete(RpcResponse response) {
+		if (response.hasException()) {
+			return fail(response.getException());
+		}
+		if (!done.compareAndSet(false, true)) {
+			return false;
+		}
+		this.result = response.getResult();
+		latch.countDown();
+		notifyListeners();
+		return true;
+	}
+
+	/**
+	 * 以异常结束调用
+	 *
+	 * @param cause
+	 * @return 是否由本次调用完成
+	 */
+	public boolean fail(Throwable cause) {
+		if (!done.compareAndSet(false, true)) {
+			return false;
+		}
+		this.exception = cause;
+		latch.countDown();
+		notifyListeners();
+		return true;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!done.compareAndSet(false, true)) {
+			return false;
+		}
+		this.cancelled = true;
+		this.exception = new CancellationException("Rpc request [" + requestId + "] cancelled");
+		if (dispatcher != null) {
+			dispatcher.unregister(requestId);
+		}
+		latch.countDown();
+		notifyListeners();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done.get();
+	}
+
+	@Override
+	public Object get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return report();
+	}
+
+	@Override
+	public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+			TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException("Rpc request [" + requestId + "] not completed in " + timeout + " " + unit);
+		}
+		return report();
+	}
+
+	/**
+	 * 添加完成回调，调用已完成时立即在当前线程执行
+	 *
+	 * @param listener
+	 */
+	public void addListener(RpcFutureListener listener) {
+		synchronized (this) {
+			if (latch.getCount() > 0) {
+				if (listeners == null) {
+					listeners = new ArrayList<RpcFutureListener>(2);
+				}
+				listeners.add(listener);
+				return;
+			}
+		}
+		notifyListener(listener);
+	}
+
+	/**
+	 * 调用是否成功完成
+	 *
+	 * @return
+	 */
+	public boolean isSuccess() {
+		return latch.getCount() == 0 && exception == null;
+	}
+
+	/**
+	 * 调用失败的原因，未完成或成功时为null
+	 *
+	 * @return
+	 */
+	public Throwable getCause() {
+		return exception;
+	}
+
+	private void notifyListeners() {
+		List<RpcFutureListener> toNotify;
+		synchronized (this) {
+			toNotify = listeners;
+			listeners = null;
+		}
+		if (toNotify != null) {
+			for (RpcFutureListener listener : toNotify) {
+				notifyListener(listener);
+			}
+		}
+	}
+
+	private void notifyListener(RpcFutureListener listener) {
+		try {
+			listener.operationComplete(this);
+		} catch (Throwable ex) {
+			LOGGER.error("RpcFutureListener threw exception", ex);
+		}
+	}
+
+	private Object report() throws ExecutionException {
+		if (cancelled) {
+			throw (CancellationException) exception;
+		}
+		if (exception != null) {
+			throw new ExecutionException(exception);
+		}
+		return result;
+	}
+
+	/**
+	 * 是否已超过截止时间
+	 *
+	 * @param now
+	 * @return
+	 */
+	public boolean isExpired(long now) {
+		return deadline > 0 && now >= deadline;
+	}
+
+	public String getRequestId() {
+		return requestId;
+	}
+
+	void setDispatcher(ReplyDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+
+}
@@ -0,0 +1,13 @@
+package zh.rpc.jms.client.remote;
+
+/**
+ * 异步调用完成回调，在完成调用的线程(通常是回复队列的分发线程)中执行，不应阻塞
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public interface RpcFutureListener {
+
+	void operationComplete(RpcFuture future);
+
+}
@@ -0,0 +1,91 @@
+package zh.rpc.jms.client.breaker;
+
+import junit.framework.TestCase;
+
+public class CircuitBreakerTest extends TestCase {
+
+	private CircuitBreaker newBreaker(long openDuration, int halfOpenProbes) {
+		return new CircuitBreaker("test", 10, 4, 0.5, 0, openDuration, halfOpenProbes);
+	}
+
+	public void testOpensWhenFailureRatioIsReached() {
+		CircuitBreaker breaker = newBreaker(60000, 1);
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onFailure();
+		// 未达到minCalls
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		breaker = newBreaker(60000, 1);
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onFailure();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		breaker.onFailure();
+		assertFalse(breaker.tryAcquire());
+		assertEquals(1, breaker.getRejectedCount());
+		assertEquals(1, breaker.getOpenCount());
+	}
+
+	public void testSlowCallsCountAsFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 0.5, 10, 60000, 1);
+		breaker.onSuccess(1000000L);
+		breaker.onSuccess(100000000L);
+		breaker.onSuccess(1000000L);
+		breaker.onSuccess(100000000L);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+	public void testHalfOpenClosesAfterSuccessfulProbes() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(10, 2);
+		openBreaker(breaker);
+		Thread.sleep(20);
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(0.0, breaker.getFailureRatio());
+	}
+
+	public void testHalfOpenReopensOnProbeFailure() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(10, 2);
+		openBreaker(breaker);
+		Thread.sleep(20);
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(2, breaker.getOpenCount());
+	}
+
+	public void testIgnoredCallsAreNotRecorded() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(10, 1);
+		for (int i = 0; i < 10; i++) {
+			breaker.onIgnored();
+		}
+		assertEquals(0.0, breaker.getFailureRatio());
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		// 半开探测被本地拒绝时归还名额，熔断器不会停留在半开状态
+		openBreaker(breaker);
+		Thread.sleep(20);
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.onIgnored();
+		assertTrue(breaker.tryAcquire());
+		breaker.onSuccess(0);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	private void openBreaker(CircuitBreaker breaker) {
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure();
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+}
@@ -0,0 +1,94 @@
+package zh.rpc.jms.client.cache;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+public class ResultCacheTest extends TestCase {
+
+	interface Lookup {
+		String find(String key);
+
+		String findAll(List<String> keys);
+
+		String findSorted(SortedMap<String, String> filter);
+
+		String findByMap(Map<String, String> filter);
+
+		String findBySets(Set<String>[] keys);
+	}
+
+	private Method method(String name) {
+		for (Method method : Lookup.class.getMethods()) {
+			if (method.getName().equals(name)) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private CallKey key(String arg) {
+		return CallKey.of(Lookup.class.getName(), "", "find(java.lang.String)", new Object[] { arg });
+	}
+
+	public void testHitMissAndEviction() {
+		ResultCache cache = new ResultCache(Lookup.class.getName(), method("find"), 60000, 2);
+		assertNull(cache.get(key("a")));
+		cache.put(key("a"), "A");
+		cache.put(key("b"), null);
+		assertEquals("A", cache.get(key("a")).getValue());
+		// 缓存null结果
+		assertNotNull(cache.get(key("b")));
+		assertNull(cache.get(key("b")).getValue());
+
+		// 最近最少使用的a被淘汰
+		cache.get(key("b"));
+		cache.put(key("c"), "C");
+		assertEquals(2, cache.size());
+		assertNull(cache.get(key("a")));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(4, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testExpiredEntryIsRemoved() throws InterruptedException {
+		ResultCache cache = new ResultCache(Lookup.class.getName(), method("find"), 10, 10);
+		cache.put(key("a"), "A");
+		Thread.sleep(20);
+		assertNull(cache.get(key("a")));
+		assertEquals(0, cache.size());
+	}
+
+	public void testInvalidConfigIsRejected() {
+		try {
+			new ResultCache(Lookup.class.getName(), method("find"), 0, 10);
+			fail("ttl must be positive");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new ResultCache(Lookup.class.getName(), method("find"), 60000, 0);
+			fail("maxSize must be positive");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testUnorderedCollectionParametersAreRejected() {
+		new ResultCache(Lookup.class.getName(), method("findAll"), 60000, 10);
+		new ResultCache(Lookup.class.getName(), method("findSorted"), 60000, 10);
+		try {
+			new ResultCache(Lookup.class.getName(), method("findByMap"), 60000, 10);
+			fail("Map parameter must be rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new ResultCache(Lookup.class.getName(), method("findBySets"), 60000, 10);
+			fail("Set[] parameter must be rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package zh.rpc.jms.client.flow;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.common.exception.RpcRejectedException;
+
+public class InFlightLimiterTest extends TestCase {
+
+	public void testFailFastRejectsWhenWindowIsFull() {
+		InFlightLimiter limiter = new InFlightLimiter(2, InFlightLimiter.Policy.FAIL_FAST, 0,
+				InFlightLimiter.Adaptive.NONE);
+		long first = limiter.acquire();
+		limiter.acquire();
+		try {
+			limiter.acquire();
+			fail("window is full");
+		} catch (RpcRejectedException expected) {
+		}
+		limiter.release(first, false);
+		limiter.acquire();
+		assertEquals(2, limiter.getInFlight());
+	}
+
+	public void testBlockTimesOut() {
+		InFlightLimiter limiter = new InFlightLimiter(1, InFlightLimiter.Policy.BLOCK, 50,
+				InFlightLimiter.Adaptive.NONE);
+		limiter.acquire();
+		try {
+			limiter.acquire();
+			fail("window is full");
+		} catch (RpcRejectedException expected) {
+		}
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	public void testDropsOfTheSameWindowDecreaseOnce() {
+		InFlightLimiter limiter = new InFlightLimiter(100, InFlightLimiter.Policy.FAIL_FAST, 0,
+				InFlightLimiter.Adaptive.AIMD);
+		long[] acquireTimes = new long[20];
+		for (int i = 0; i < acquireTimes.length; i++) {
+			acquireTimes[i] = limiter.acquire();
+		}
+		for (long acquireTime : acquireTimes) {
+			limiter.release(acquireTime, true);
+		}
+		assertEquals(90, limiter.getLimit());
+
+		// 缩减之后发出的请求再次超时，继续缩减
+		limiter.release(limiter.acquire(), true);
+		assertEquals(81, limiter.getLimit());
+	}
+
+	public void testAimdIncreasesWhenWindowIsFull() {
+		InFlightLimiter limiter = new InFlightLimiter(10, InFlightLimiter.Policy.FAIL_FAST, 0,
+				InFlightLimiter.Adaptive.AIMD);
+		limiter.release(limiter.acquire(), true);
+		assertEquals(9, limiter.getLimit());
+		long[] acquireTimes = new long[9];
+		for (int i = 0; i < acquireTimes.length; i++) {
+			acquireTimes[i] = limiter.acquire();
+		}
+		limiter.release(acquireTimes[0], false);
+		assertEquals(10, limiter.getLimit());
+	}
+
+	public void testLimitNeverDropsBelowOne() {
+		InFlightLimiter limiter = new InFlightLimiter(2, InFlightLimiter.Policy.FAIL_FAST, 0,
+				InFlightLimiter.Adaptive.AIMD);
+		for (int i = 0; i < 20; i++) {
+			limiter.release(limiter.acquire(), true);
+		}
+		assertEquals(1, limiter.getLimit());
+	}
+
+}
@@ -0,0 +1,46 @@
+package zh.rpc.jms.client.hedge;
+
+import junit.framework.TestCase;
+
+public class HedgeBudgetTest extends TestCase {
+
+	public void testHedgesAreLimitedToMaxRatio() {
+		HedgeBudget budget = new HedgeBudget(0.1);
+		assertFalse(budget.tryAcquire());
+		int hedged = 0;
+		for (int i = 0; i < 1000; i++) {
+			budget.onRequest();
+			if (budget.tryAcquire()) {
+				hedged++;
+			}
+		}
+		assertTrue(hedged >= 99 && hedged <= 100);
+		assertEquals(hedged, budget.getHedgedCount());
+		assertEquals(1001 - hedged, budget.getRejectedCount());
+	}
+
+	public void testTokensAreCapped() {
+		HedgeBudget budget = new HedgeBudget(1);
+		for (int i = 0; i < 100; i++) {
+			budget.onRequest();
+		}
+		for (int i = 0; i < 10; i++) {
+			assertTrue(budget.tryAcquire());
+		}
+		assertFalse(budget.tryAcquire());
+	}
+
+	public void testInvalidRatioIsRejected() {
+		try {
+			new HedgeBudget(0);
+			fail("maxRatio must be positive");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new HedgeBudget(1.5);
+			fail("maxRatio must not exceed 1");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package zh.rpc.jms.client.hedge;
+
+import junit.framework.TestCase;
+
+public class LatencyTrackerTest extends TestCase {
+
+	public void testNoThresholdBeforeMinSamples() {
+		LatencyTracker tracker = new LatencyTracker(95);
+		for (int i = 1; i < 100; i++) {
+			tracker.record(i);
+		}
+		assertEquals(0, tracker.getThreshold());
+		tracker.record(100);
+		assertEquals(95, tracker.getThreshold());
+	}
+
+	public void testThresholdFollowsRecentSamples() {
+		LatencyTracker tracker = new LatencyTracker(50);
+		for (int i = 0; i < 512; i++) {
+			tracker.record(10);
+		}
+		assertEquals(10, tracker.getThreshold());
+		// 旧的采样被整个窗口替换后，分位数只反映近期时延
+		for (int i = 0; i < 512; i++) {
+			tracker.record(1000);
+		}
+		assertEquals(1000, tracker.getThreshold());
+	}
+
+	public void testInvalidPercentileIsRejected() {
+		try {
+			new LatencyTracker(100);
+			fail("percentile must be below 100");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package zh.rpc.jms.client.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.common.exception.RpcRejectedException;
+
+public class JmsSessionPoolTest extends TestCase {
+
+	// 不依赖JMS实现，用动态代理模拟连接和Session，记录创建及关闭情况
+	private final List<FakeConnection> connections = new ArrayList<FakeConnection>();
+
+	private final List<FakeSession> sessions = new ArrayList<FakeSession>();
+
+	private JmsSessionPool pool;
+
+	// 为true时新建连接的start()抛出异常
+	private boolean failStart;
+
+	private class FakeConnection implements InvocationHandler {
+		ExceptionListener exceptionListener;
+		boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws JMSException {
+			String name = method.getName();
+			if (name.equals("start") && failStart) {
+				throw new JMSException("broker unavailable");
+			} else if (name.equals("setExceptionListener")) {
+				exceptionListener = (ExceptionListener) args[0];
+			} else if (name.equals("close")) {
+				closed = true;
+			} else if (name.equals("createSession")) {
+				FakeSession session = new FakeSession();
+				sessions.add(session);
+				return session.proxy;
+			}
+			return defaultValue(proxy, method, args);
+		}
+	}
+
+	private class FakeSession implements InvocationHandler {
+		final Session proxy = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Session.class }, this);
+		boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws JMSException {
+			String name = method.getName();
+			if (name.equals("close")) {
+				closed = true;
+			} else if (name.equals("getAcknowledgeMode")) {
+				if (closed) {
+					throw new JMSException("Session closed");
+				}
+				return Integer.valueOf(Session.AUTO_ACKNOWLEDGE);
+			}
+			return defaultValue(proxy, method, args);
+		}
+	}
+
+	private static Object defaultValue(Object proxy, Method method, Object[] args) {
+		if (method.getName().equals("equals")) {
+			return Boolean.valueOf(proxy == args[0]);
+		}
+		if (method.getName().equals("hashCode")) {
+			return Integer.valueOf(System.identityHashCode(proxy));
+		}
+		if (method.getName().equals("toString")) {
+			return "fake";
+		}
+		return null;
+	}
+
+	@Override
+	protected void setUp() {
+		ConnectionFactory connectionFactory = (ConnectionFactory) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { ConnectionFactory.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("createConnection")) {
+					FakeConnection connection = new FakeConnection();
+					connections.add(connection);
+					return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+							connection);
+				}
+				return defaultValue(proxy, method, args);
+			}
+		});
+		pool = new JmsSessionPool(connectionFactory, null);
+		pool.setMinIdle(1);
+		pool.setMaxActive(2);
+		pool.setEvictionInterval(0);
+	}
+
+	@Override
+	protected void tearDown() {
+		pool.close();
+	}
+
+	public void testSessionsAreReused() throws JMSException {
+		pool.initialize();
+		assertEquals(1, pool.getNumIdle());
+		PooledSession first = pool.borrow();
+		assertEquals(0, pool.getNumIdle());
+		assertEquals(1, pool.getNumActive());
+		pool.release(first, false);
+		assertSame(first, pool.borrow());
+		assertEquals(1, sessions.size());
+		assertEquals(1, connections.size());
+	}
+
+	public void testBorrowTimesOutWhenExhausted() throws JMSException {
+		pool.setMaxWait(20);
+		pool.initialize();
+		PooledSession first = pool.borrow();
+		pool.borrow();
+		try {
+			pool.borrow();
+			fail("pool is exhausted");
+		} catch (RpcRejectedException expected) {
+		}
+		pool.release(first, false);
+		assertSame(first, pool.borrow());
+	}
+
+	public void testBrokenSessionIsDestroyed() throws JMSException {
+		pool.initialize();
+		PooledSession first = pool.borrow();
+		pool.release(first, true);
+		assertTrue(sessions.get(0).closed);
+		assertEquals(0, pool.getNumIdle());
+		assertNotSame(first, pool.borrow());
+	}
+
+	public void testBrokenConnectionIsReplaced() throws JMSException {
+		pool.initialize();
+		PooledSession first = pool.borrow();
+		pool.release(first, false);
+		connections.get(0).exceptionListener.onException(new JMSException("connection lost"));
+
+		PooledSession second = pool.borrow();
+		assertNotSame(first, second);
+		assertTrue(sessions.get(0).closed);
+		assertEquals(2, connections.size());
+		// 旧连接上的Session全部销毁后关闭旧连接
+		assertTrue(connections.get(0).closed);
+		assertFalse(connections.get(1).closed);
+	}
+
+	public void testConnectionIsClosedWhenStartFails() throws JMSException {
+		pool.setMinIdle(0);
+		pool.initialize();
+		failStart = true;
+		for (int i = 0; i < 2; i++) {
+			try {
+				pool.borrow();
+				fail("connection start fails");
+			} catch (JMSException expected) {
+			}
+		}
+		assertEquals(2, connections.size());
+		assertTrue(connections.get(0).closed);
+		assertTrue(connections.get(1).closed);
+		assertEquals(0, pool.getNumActive());
+
+		failStart = false;
+		pool.release(pool.borrow(), false);
+		assertFalse(connections.get(2).closed);
+	}
+
+	public void testCloseReleasesConnections() throws JMSException {
+		pool.initialize();
+		pool.release(pool.borrow(), false);
+		pool.close();
+		assertTrue(sessions.get(0).closed);
+		assertTrue(connections.get(0).closed);
+	}
+
+}
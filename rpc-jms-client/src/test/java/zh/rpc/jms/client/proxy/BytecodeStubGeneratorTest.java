@@ -0,0 +1,138 @@
+package zh.rpc.jms.client.proxy;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.client.RpcProxyBean;
+import zh.rpc.jms.common.serializer.PrimitiveCodec;
+
+public class BytecodeStubGeneratorTest extends TestCase {
+
+	public interface Service {
+		int add(int a, long b) throws IOException;
+
+		String echo(String s);
+	}
+
+	public interface MixedService {
+		long mix(int a, String tag, long b, double c);
+	}
+
+	public interface HiddenTypeService {
+		void accept(Hidden hidden);
+	}
+
+	static class Hidden {
+	}
+
+	/**
+	 * 不发起远程调用，直接抛出预设的异常或返回预设的值
+	 */
+	private static class StubbedFactory extends ProxyFactory {
+
+		private Throwable toThrow;
+
+		private Object toReturn;
+
+		private byte[] packed;
+
+		private Object[] objects;
+
+		StubbedFactory(Class<?> serviceInterface) {
+			this(newProxyBean(serviceInterface));
+		}
+
+		StubbedFactory(RpcProxyBean proxyBean) {
+			super(proxyBean);
+		}
+
+		@Override
+		public Object invokePacked(RpcMethodDescriptor descriptor, byte[] packed, Object[] objects) throws Throwable {
+			this.packed = packed;
+			this.objects = objects;
+			return toReturn;
+		}
+
+		@Override
+		public Object invoke(RpcMethodDescriptor descriptor, Object[] args) throws Throwable {
+			if (toThrow != null) {
+				throw toThrow;
+			}
+			return toReturn;
+		}
+	}
+
+	private static RpcProxyBean newProxyBean(Class<?> serviceInterface) {
+		RpcProxyBean proxyBean = new RpcProxyBean();
+		proxyBean.setServiceInterface(serviceInterface);
+		return proxyBean;
+	}
+
+	public void testReturnValueIsUnboxed() {
+		StubbedFactory factory = new StubbedFactory(Service.class);
+		Service service = (Service) factory.getProxy(ProxyFactory.Generator.BYTECODE);
+		assertFalse(Proxy.isProxyClass(service.getClass()));
+		factory.toReturn = "hi";
+		assertEquals("hi", service.echo("hi"));
+	}
+
+	public void testDeclaredAndUncheckedExceptionsPropagate() throws Exception {
+		StubbedFactory factory = new StubbedFactory(Service.class);
+		Service service = (Service) factory.getProxy(ProxyFactory.Generator.BYTECODE);
+		IOException declared = new IOException("declared");
+		factory.toThrow = declared;
+		try {
+			service.add(1, 2);
+			fail();
+		} catch (IOException e) {
+			assertSame(declared, e);
+		}
+		IllegalStateException unchecked = new IllegalStateException("unchecked");
+		factory.toThrow = unchecked;
+		try {
+			service.echo("x");
+			fail();
+		} catch (IllegalStateException e) {
+			assertSame(unchecked, e);
+		}
+	}
+
+	public void testUndeclaredCheckedExceptionIsWrapped() {
+		StubbedFactory factory = new StubbedFactory(Service.class);
+		Service service = (Service) factory.getProxy(ProxyFactory.Generator.BYTECODE);
+		SQLException undeclared = new SQLException("undeclared");
+		factory.toThrow = undeclared;
+		try {
+			service.echo("x");
+			fail();
+		} catch (UndeclaredThrowableException e) {
+			assertSame(undeclared, e.getCause());
+		}
+	}
+
+	public void testPrimitiveArgumentsArePackedByTheStub() throws Exception {
+		RpcProxyBean proxyBean = newProxyBean(MixedService.class);
+		proxyBean.setPackPrimitives(true);
+		StubbedFactory factory = new StubbedFactory(proxyBean);
+		MixedService service = (MixedService) factory.getProxy(ProxyFactory.Generator.BYTECODE);
+		factory.toReturn = Long.valueOf(42);
+
+		assertEquals(42L, service.mix(-7, "tag", Long.MIN_VALUE, 2.5));
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(MixedService.class.getMethod("mix", int.class,
+				String.class, long.class, double.class).getParameterTypes());
+		Object[] args = { -7, "tag", Long.MIN_VALUE, 2.5 };
+		assertTrue(Arrays.equals(codec.pack(args), factory.packed));
+		assertTrue(Arrays.equals(new Object[] { "tag" }, factory.objects));
+	}
+
+	public void testNonPublicSignatureTypeFallsBackToJdkProxy() {
+		StubbedFactory factory = new StubbedFactory(HiddenTypeService.class);
+		Object proxy = factory.getProxy(ProxyFactory.Generator.BYTECODE);
+		assertTrue(Proxy.isProxyClass(proxy.getClass()));
+	}
+
+}
@@ -0,0 +1,96 @@
+package zh.rpc.jms.client.proxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Queue;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.client.RpcProxyBean;
+import zh.rpc.jms.common.annotation.RpcCacheable;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.exception.RpcJmsException;
+
+public class ProxyFactoryTest extends TestCase {
+
+	public interface Lookup {
+		@RpcCacheable
+		String find(String key);
+	}
+
+	public static class LookupFallback implements Lookup {
+		public String find(String key) {
+			return "fallback";
+		}
+	}
+
+	// 不访问JMS，按failing返回结果或模拟超时
+	private static class StubProxyBean extends RpcProxyBean {
+		volatile boolean failing;
+
+		@Override
+		public Object invoke(RpcRequest request) throws Throwable {
+			if (failing) {
+				throw new RpcJmsException("timeout");
+			}
+			return "remote";
+		}
+	}
+
+	private static Object stub(Class<?> type) {
+		return Proxy.newProxyInstance(ProxyFactoryTest.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				});
+	}
+
+	private StubProxyBean proxyBean;
+
+	@Override
+	protected void setUp() throws Exception {
+		proxyBean = new StubProxyBean();
+		proxyBean.setServiceInterface(Lookup.class);
+		proxyBean.setConnectionFactory((ConnectionFactory) stub(ConnectionFactory.class));
+		proxyBean.setQueue((Queue) stub(Queue.class));
+		proxyBean.setPoolMinIdle(0);
+		proxyBean.setPoolEvictionInterval(0);
+		proxyBean.setCircuitBreaker(true);
+		proxyBean.setBreakerWindowSize(2);
+		proxyBean.setBreakerMinCalls(2);
+		proxyBean.setBreakerOpenDuration(50);
+		proxyBean.setBreakerHalfOpenProbes(1);
+		proxyBean.setFallback(new LookupFallback());
+		proxyBean.afterPropertiesSet();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		proxyBean.destroy();
+	}
+
+	public void testFallbackResultIsNotCached() throws Exception {
+		Lookup lookup = (Lookup) proxyBean.getObject();
+		proxyBean.failing = true;
+		for (int i = 0; i < 2; i++) {
+			try {
+				lookup.find("a");
+				fail("remote call fails");
+			} catch (RpcJmsException expected) {
+			}
+		}
+		assertEquals("fallback", lookup.find("a"));
+
+		// 熔断结束后重新访问服务端，不返回缓存的降级结果
+		proxyBean.failing = false;
+		Thread.sleep(100);
+		assertEquals("remote", lookup.find("a"));
+		assertEquals("remote", lookup.find("a"));
+		assertEquals(1, proxyBean.getResultCache(Lookup.class.getMethod("find", String.class)).getHitCount());
+	}
+
+}
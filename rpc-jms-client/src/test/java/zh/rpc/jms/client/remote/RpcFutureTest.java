@@ -0,0 +1,37 @@
+package zh.rpc.jms.client.remote;
+
+import java.util.concurrent.CancellationException;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.common.bean.RpcResponse;
+
+public class RpcFutureTest extends TestCase {
+
+	public void testCancelUnregistersFromDispatcher() throws Exception {
+		ReplyDispatcher dispatcher = new ReplyDispatcher(null, null, null, 1000);
+		RpcFuture future = new RpcFuture("1", 0);
+		dispatcher.register(future);
+		assertEquals(1, dispatcher.getPendingCount());
+
+		assertTrue(future.cancel(false));
+		assertEquals(0, dispatcher.getPendingCount());
+		assertTrue(future.isCancelled());
+		try {
+			future.get();
+			fail("future is cancelled");
+		} catch (CancellationException expected) {
+		}
+	}
+
+	public void testCompletedFutureCannotBeCancelled() {
+		ReplyDispatcher dispatcher = new ReplyDispatcher(null, null, null, 1000);
+		RpcFuture future = new RpcFuture("1", 0);
+		dispatcher.register(future);
+		RpcResponse response = new RpcResponse();
+		response.setRequestId("1");
+		assertTrue(future.complete(response));
+		assertFalse(future.cancel(false));
+		assertFalse(future.isCancelled());
+	}
+
+}
@@ -0,0 +1,34 @@
+package zh.rpc.jms.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口的幂等查询方法上，客户端按参数缓存调用结果；缓存的结果对象直接返回给调用方，不应修改
+ * <p>
+ * 参数以序列化后的字节比较，序列化结果必须由参数内容唯一确定：参数类型不能是HashMap、HashSet等无序集合(创建代理时报错)，
+ * 参数对象的字段及声明为Object的参数中也不应包含无序集合，否则相同的参数可能得到不同的序列化结果，缓存不会命中
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcCacheable {
+
+	/**
+	 * 缓存有效期(毫秒)，必须大于0
+	 * 
+	 * @return
+	 */
+	long ttl() default 60000;
+
+	/**
+	 * 最多缓存的结果数，超出后淘汰最近最少使用的结果，必须大于0
+	 * 
+	 * @return
+	 */
+	int maxSize() default 1000;
+}
@@ -0,0 +1,18 @@
+package zh.rpc.jms.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口的幂等方法上，客户端开启hedgeRequests后，请求超过近期时延分位数仍未返回时会再发送一份相同的请求，
+ * 采用先到达的响应；服务端可能执行多次
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcIdempotent {
+}
@@ -0,0 +1,18 @@
+package zh.rpc.jms.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口返回void的方法上，客户端发送请求后立即返回，不设置JMSReplyTo，服务端不回复；
+ * 调用方无法得知服务端是否执行成功
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcOneWay {
+}
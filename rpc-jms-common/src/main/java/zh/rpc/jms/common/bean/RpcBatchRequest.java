@@ -0,0 +1,44 @@
+package zh.rpc.jms.common.bean;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装批量 RPC 请求，多个请求合并为一条JMS消息发送
+ * 
+ * @author zhaohui
+ * 
+ */
+public class RpcBatchRequest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String batchId;
+	private List<RpcRequest> requests;
+	// 各请求的截止时间(毫秒时间戳)，与requests一一对应，0表示不限
+	private long[] deadlines;
+
+	public String getBatchId() {
+		return batchId;
+	}
+
+	public void setBatchId(String batchId) {
+		this.batchId = batchId;
+	}
+
+	public List<RpcRequest> getRequests() {
+		return requests;
+	}
+
+	public void setRequests(List<RpcRequest> requests) {
+		this.requests = requests;
+	}
+
+	public long[] getDeadlines() {
+		return deadlines;
+	}
+
+	public void setDeadlines(long[] deadlines) {
+		this.deadlines = deadlines;
+	}
+}
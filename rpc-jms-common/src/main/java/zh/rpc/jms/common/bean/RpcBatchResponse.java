@@ -0,0 +1,34 @@
+package zh.rpc.jms.common.bean;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装批量 RPC 响应，与RpcBatchRequest中的请求一一对应
+ * 
+ * @author zhaohui
+ * 
+ */
+public class RpcBatchResponse implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String batchId;
+	private List<RpcResponse> responses;
+
+	public String getBatchId() {
+		return batchId;
+	}
+
+	public void setBatchId(String batchId) {
+		this.batchId = batchId;
+	}
+
+	public List<RpcResponse> getResponses() {
+		return responses;
+	}
+
+	public void setResponses(List<RpcResponse> responses) {
+		this.responses = responses;
+	}
+}
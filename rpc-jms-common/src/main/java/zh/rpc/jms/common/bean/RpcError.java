@@ -0,0 +1,159 @@
+package zh.rpc.jms.common.bean;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+
+import zh.rpc.jms.common.exception.ErrorCodeProvider;
+import zh.rpc.jms.common.exception.RpcRemoteException;
+
+/**
+ * 服务端异常的紧凑表示：只携带异常类名、消息、错误码和截断的异常栈，不序列化异常对象及其cause链；
+ * 客户端能加载该异常类时重建同类型的异常
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcError implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String className;
+	private String message;
+	private String errorCode;
+	// 异常栈，每个元素为StackTraceElement.toString()的格式
+	private String[] stackTrace;
+
+	/**
+	 * 由服务端异常创建
+	 *
+	 * @param ex
+	 * @param stackDepth
+	 *            保留的异常栈深度，0为不保留
+	 * @return
+	 */
+	public static RpcError of(Throwable ex, int stackDepth) {
+		RpcError error = new RpcError();
+		error.className = ex.getClass().getName();
+		error.message = ex.getMessage();
+		if (ex instanceof ErrorCodeProvider) {
+			error.errorCode = ((ErrorCodeProvider) ex).getErrorCode();
+		}
+		if (stackDepth > 0) {
+			StackTraceElement[] frames = ex.getStackTrace();
+			error.stackTrace = new String[Math.min(stackDepth, frames.length)];
+			for (int i = 0; i < error.stackTrace.length; i++) {
+				error.stackTrace[i] = frames[i].toString();
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * 重建异常：异常类可加载且有(String)或无参构造器时创建同类型的异常，否则返回RpcRemoteException
+	 *
+	 * @return
+	 */
+	public Throwable toThrowable() {
+		Throwable ex = instantiate();
+		if (ex == null) {
+			ex = new RpcRemoteException(className, message, errorCode);
+		}
+		if (stackTrace != null) {
+			ex.setStackTrace(parseStackTrace());
+		}
+		return ex;
+	}
+
+	private Throwable instantiate() {
+		try {
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			if (classLoader == null) {
+				classLoader = RpcError.class.getClassLoader();
+			}
+			Class<?> cls = Class.forName(className, false, classLoader);
+			if (!Throwable.class.isAssignableFrom(cls)) {
+				return null;
+			}
+			try {
+				Constructor<?> constructor = cls.getConstructor(String.class);
+				return (Throwable) constructor.newInstance(message);
+			} catch (NoSuchMethodException e) {
+				return (Throwable) cls.getConstructor().newInstance();
+			}
+		} catch (Exception e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 解析如module/cls.method(File.java:10)的异常栈，无法解析的元素只保留原文
+	 *
+	 * @return
+	 */
+	private StackTraceElement[] parseStackTrace() {
+		StackTraceElement[] frames = new StackTraceElement[stackTrace.length];
+		for (int i = 0; i < stackTrace.length; i++) {
+			String frame = stackTrace[i];
+			int open = frame.indexOf('(');
+			int dot = open > 0 ? frame.lastIndexOf('.', open) : -1;
+			if (dot <= 0 || !frame.endsWith(")")) {
+				frames[i] = new StackTraceElement(frame, "", null, -1);
+				continue;
+			}
+			String declaringClass = frame.substring(frame.lastIndexOf('/', dot) + 1, dot);
+			String methodName = frame.substring(dot + 1, open);
+			String location = frame.substring(open + 1, frame.length() - 1);
+			String fileName = null;
+			int lineNumber = -1;
+			int colon = location.lastIndexOf(':');
+			if ("Native Method".equals(location)) {
+				lineNumber = -2;
+			} else if (colon > 0) {
+				fileName = location.substring(0, colon);
+				try {
+					lineNumber = Integer.parseInt(location.substring(colon + 1));
+				} catch (NumberFormatException e) {
+					fileName = location;
+				}
+			} else if (!"Unknown Source".equals(location)) {
+				fileName = location;
+			}
+			frames[i] = new StackTraceElement(declaringClass, methodName, fileName, lineNumber);
+		}
+		return frames;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public void setClassName(String className) {
+		this.className = className;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public String getErrorCode() {
+		return errorCode;
+	}
+
+	public void setErrorCode(String errorCode) {
+		this.errorCode = errorCode;
+	}
+
+	public String[] getStackTrace() {
+		return stackTrace;
+	}
+
+	public void setStackTrace(String[] stackTrace) {
+		this.stackTrace = stackTrace;
+	}
+}
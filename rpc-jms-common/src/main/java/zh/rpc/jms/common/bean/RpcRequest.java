@@ -1,12 +1,16 @@
 package zh.rpc.jms.common.bean;
 
+import java.io.Serializable;
+
 /**
  * 封装 RPC 请求
  * 
  * @author zhaohui
  * 
  */
-public class RpcRequest {
+public class RpcRequest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private String requestId;
 	private String interfaceName;
@@ -14,6 +18,13 @@ public class RpcRequest {
 	private String methodName;
 	private Class<?>[] parameterTypes;
 	private Object[] parameters;
+	// 紧凑请求头：方法编号及接口方法表摘要，设置后不再携带methodName和parameterTypes
+	private Integer methodId;
+	private Integer methodDigest;
+	// 按方法签名编码的基本类型参数，设置后parameters只包含其余参数
+	private byte[] primitiveParameters;
+	// 基本类型返回值是否编码为RpcResponse.primitiveResult
+	private boolean packResult;
 
 	public String getRequestId() {
 		return requestId;
@@ -62,4 +73,45 @@ public class RpcRequest {
 	public void setParameters(Object[] parameters) {
 		this.parameters = parameters;
 	}
+
+	public Integer getMethodId() {
+		return methodId;
+	}
+
+	public void setMethodId(Integer methodId) {
+		this.methodId = methodId;
+	}
+
+	public Integer getMethodDigest() {
+		return methodDigest;
+	}
+
+	public void setMethodDigest(Integer methodDigest) {
+		this.methodDigest = methodDigest;
+	}
+
+	public byte[] getPrimitiveParameters() {
+		return primitiveParameters;
+	}
+
+	public void setPrimitiveParameters(byte[] primitiveParameters) {
+		this.primitiveParameters = primitiveParameters;
+	}
+
+	public boolean isPackResult() {
+		return packResult;
+	}
+
+	public void setPackResult(boolean packResult) {
+		this.packResult = packResult;
+	}
+
+	/**
+	 * 是否以方法编号标识调用的方法
+	 * 
+	 * @return
+	 */
+	public boolean hasMethodId() {
+		return methodId != null;
+	}
 }
@@ -1,19 +1,29 @@
 package zh.rpc.jms.common.bean;
 
+import java.io.Serializable;
+
+import zh.rpc.jms.common.serializer.PrimitiveCodec;
+
 /**
  * 封装 RPC 响应
  * 
  * @author zhaohui
  * 
  */
-public class RpcResponse{
+public class RpcResponse implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private String requestId;
 	private Exception exception;
+	// 紧凑方式回传的异常，与exception二选一
+	private RpcError error;
 	private Object result;
+	// 请求要求时，基本类型返回值按PrimitiveCodec编码，与result二选一
+	private byte[] primitiveResult;
 
 	public boolean hasException() {
-		return exception != null;
+		return exception != null || error != null;
 	}
 
 	public String getRequestId() {
@@ -24,7 +34,15 @@ public class RpcResponse{
 		this.requestId = requestId;
 	}
 
+	/**
+	 * 服务端异常，紧凑方式回传时按异常类名重建
+	 * 
+	 * @return
+	 */
 	public Throwable getException() {
+		if (exception == null && error != null) {
+			return error.toThrowable();
+		}
 		return exception;
 	}
 
@@ -32,11 +50,35 @@ public class RpcResponse{
 		this.exception = exception;
 	}
 
+	public RpcError getError() {
+		return error;
+	}
+
+	public void setError(RpcError error) {
+		this.error = error;
+	}
+
+	/**
+	 * 方法返回值，基本类型返回值单独编码时解码后返回
+	 * 
+	 * @return
+	 */
 	public Object getResult() {
+		if (result == null && primitiveResult != null) {
+			return PrimitiveCodec.unpackResult(primitiveResult);
+		}
 		return result;
 	}
 
 	public void setResult(Object result) {
 		this.result = result;
 	}
+
+	public byte[] getPrimitiveResult() {
+		return primitiveResult;
+	}
+
+	public void setPrimitiveResult(byte[] primitiveResult) {
+		this.primitiveResult = primitiveResult;
+	}
 }
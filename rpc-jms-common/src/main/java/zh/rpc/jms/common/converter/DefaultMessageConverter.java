@@ -1,5 +1,7 @@
 package zh.rpc.jms.common.converter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 import javax.jms.BytesMessage;
@@ -10,9 +12,31 @@ import javax.jms.Session;
 import javax.jms.TextMessage;
 
 import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.serializer.Serializer;
 
 public class DefaultMessageConverter implements MessageConverter {
 
+	// 超过该大小的线程缓冲区用完即丢弃，避免偶发的大消息长期占用内存
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	// 每个线程复用的序列化输出缓冲区
+	private static final ThreadLocal<BodyOutputStream> WRITE_BUFFERS = new ThreadLocal<BodyOutputStream>() {
+		@Override
+		protected BodyOutputStream initialValue() {
+			return new BodyOutputStream(INITIAL_BUFFER_SIZE);
+		}
+	};
+
+	// 每个线程复用的消息体读取缓冲区
+	private static final ThreadLocal<byte[]> READ_BUFFERS = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[INITIAL_BUFFER_SIZE];
+		}
+	};
+
 	@Override
 	public Message toMessage(Object object, Session session) throws JMSException {
 		if (object instanceof Message) {
@@ -43,6 +67,49 @@ public class DefaultMessageConverter implements MessageConverter {
 		}
 	}
 
+	/**
+	 * 序列化到线程复用的缓冲区后一次性写入消息体：不生成中间字节数组，
+	 * 也避免分段写入时BytesMessage内部缓冲区的多次扩容
+	 */
+	@Override
+	public Message toMessage(Object object, Serializer serializer, Session session) throws JMSException {
+		BodyOutputStream buffer = WRITE_BUFFERS.get();
+		buffer.reset();
+		try {
+			serializer.serialize(object, buffer);
+			BytesMessage message = session.createBytesMessage();
+			message.writeBytes(buffer.array(), 0, buffer.size());
+			return message;
+		} catch (IOException e) {
+			throw new RpcJmsException("Could not serialize object of type [" + object.getClass().getName() + "]", e);
+		} finally {
+			if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+				WRITE_BUFFERS.remove();
+			}
+		}
+	}
+
+	/**
+	 * BytesMessage读入线程复用的缓冲区后反序列化，其他类型的消息先取出字节数组
+	 */
+	@Override
+	public <T> T fromMessage(Message message, Serializer serializer, Class<T> cls) throws JMSException {
+		if (!(message instanceof BytesMessage)) {
+			return serializer.deserialize((byte[]) fromMessage(message), cls);
+		}
+		BytesMessage bytesMessage = (BytesMessage) message;
+		int length = (int) bytesMessage.getBodyLength();
+		byte[] buffer = READ_BUFFERS.get();
+		if (buffer.length < length) {
+			buffer = new byte[length];
+			if (length <= MAX_RETAINED_BUFFER_SIZE) {
+				READ_BUFFERS.set(buffer);
+			}
+		}
+		bytesMessage.readBytes(buffer, length);
+		return serializer.deserialize(buffer, 0, length, cls);
+	}
+
 	private TextMessage createMessageForString(String text, Session session) throws JMSException {
 		return session.createTextMessage(text);
 	}
@@ -71,4 +138,22 @@ public class DefaultMessageConverter implements MessageConverter {
 		return message.getObject();
 	}
 
+	/**
+	 * 可直接访问内部数组的ByteArrayOutputStream
+	 */
+	private static class BodyOutputStream extends ByteArrayOutputStream {
+
+		BodyOutputStream(int size) {
+			super(size);
+		}
+
+		byte[] array() {
+			return buf;
+		}
+
+		int capacity() {
+			return buf.length;
+		}
+	}
+
 }
@@ -4,6 +4,8 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
 
+import zh.rpc.jms.common.serializer.Serializer;
+
 /**
  * 消息转换器
  * 
@@ -31,4 +33,26 @@ public interface MessageConverter {
 	 */
 	Object fromMessage(Message message) throws JMSException;
 
+	/**
+	 * 按指定序列化方式将对象写入JMS Message
+	 * 
+	 * @param object
+	 * @param serializer
+	 * @param session
+	 * @return
+	 * @throws JMSException
+	 */
+	Message toMessage(Object object, Serializer serializer, Session session) throws JMSException;
+
+	/**
+	 * 按指定序列化方式从JMS Message读取对象
+	 * 
+	 * @param message
+	 * @param serializer
+	 * @param cls
+	 * @return
+	 * @throws JMSException
+	 */
+	<T> T fromMessage(Message message, Serializer serializer, Class<T> cls) throws JMSException;
+
 }
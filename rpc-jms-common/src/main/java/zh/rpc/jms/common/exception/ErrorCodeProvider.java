@@ -0,0 +1,18 @@
+package zh.rpc.jms.common.exception;
+
+/**
+ * 业务异常实现该接口后，错误码随紧凑异常回传给客户端
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public interface ErrorCodeProvider {
+
+	/**
+	 * 错误码
+	 *
+	 * @return
+	 */
+	String getErrorCode();
+
+}
@@ -0,0 +1,20 @@
+package zh.rpc.jms.common.exception;
+
+/**
+ * 熔断器处于打开状态，调用未发送到服务端
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcCircuitOpenException extends RpcJmsException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public RpcCircuitOpenException(String msg) {
+		super(msg);
+	}
+
+}
@@ -0,0 +1,20 @@
+package zh.rpc.jms.common.exception;
+
+/**
+ * 请求被客户端流控拒绝或等待JMS Session超时，未发送到JMS
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcRejectedException extends RpcJmsException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public RpcRejectedException(String msg) {
+		super(msg);
+	}
+
+}
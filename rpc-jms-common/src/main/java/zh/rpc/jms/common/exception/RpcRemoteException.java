@@ -0,0 +1,40 @@
+package zh.rpc.jms.common.exception;
+
+/**
+ * 服务端抛出的异常在客户端无法按原类型重建时的替代；属于服务端业务异常，不继承RpcJmsException，不计入熔断统计
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcRemoteException extends RuntimeException implements ErrorCodeProvider {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final String className;
+
+	private final String errorCode;
+
+	public RpcRemoteException(String className, String message, String errorCode) {
+		super(className + ": " + message);
+		this.className = className;
+		this.errorCode = errorCode;
+	}
+
+	/**
+	 * 服务端异常的类名
+	 *
+	 * @return
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	@Override
+	public String getErrorCode() {
+		return errorCode;
+	}
+
+}
@@ -0,0 +1,20 @@
+package zh.rpc.jms.common.exception;
+
+/**
+ * 等待服务端响应超时
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcTimeoutException extends RpcJmsException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public RpcTimeoutException(String msg) {
+		super(msg);
+	}
+
+}
@@ -0,0 +1,61 @@
+package zh.rpc.jms.common.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Java自带序列化，参数、返回值及异常均需实现Serializable；反序列化时可实例化classpath上的任意Serializable类，
+ * 只应在消息来源可信时使用
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class JdkSerializer implements Serializer {
+
+	public static final int ID = 3;
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public <T> byte[] serialize(T obj) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		try {
+			serialize(obj, bytes);
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, Class<T> cls) {
+		return deserialize(data, 0, data.length, cls);
+	}
+
+	@Override
+	public <T> void serialize(T obj, OutputStream output) throws IOException {
+		ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+		objectOutput.writeObject(obj);
+		objectOutput.flush();
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, int offset, int length, Class<T> cls) {
+		try {
+			ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(data, offset, length));
+			return cls.cast(objectInput.readObject());
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+}
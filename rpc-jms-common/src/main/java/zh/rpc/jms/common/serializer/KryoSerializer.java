@@ -0,0 +1,152 @@
+package zh.rpc.jms.common.serializer;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoCallback;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+import zh.rpc.jms.common.bean.RpcBatchRequest;
+import zh.rpc.jms.common.bean.RpcBatchResponse;
+import zh.rpc.jms.common.bean.RpcError;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.bean.RpcResponse;
+
+/**
+ * Kryo序列化：Kryo实例非线程安全且创建开销大，通过KryoPool复用；要求注册类，只能反序列化框架自身的类和
+ * registeredClasses中的类(参数、返回值及FULL方式回传的异常)；注册顺序决定类的编号，客户端与服务端须按相同顺序注册
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class KryoSerializer implements Serializer {
+
+	public static final int ID = 2;
+
+	// 序列化输出的初始缓冲区大小
+	private static final int BUFFER_SIZE = 512;
+
+	// 写入输出流时每个线程复用的缓冲区大小
+	private static final int STREAM_BUFFER_SIZE = 4096;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	// 框架自身需要注册的类，先于registeredClasses注册
+	private static final Class<?>[] BUILTIN_CLASSES = { RpcRequest.class, RpcResponse.class, RpcError.class,
+			RpcBatchRequest.class, RpcBatchResponse.class, Class.class, Class[].class, Object[].class,
+			String[].class, byte[].class, long[].class, ArrayList.class, HashMap.class };
+
+	private final List<Class<?>> registeredClasses;
+
+	private final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+		@Override
+		protected Output initialValue() {
+			return new Output(STREAM_BUFFER_SIZE);
+		}
+	};
+
+	private final ThreadLocal<Input> inputs = new ThreadLocal<Input>() {
+		@Override
+		protected Input initialValue() {
+			return new Input();
+		}
+	};
+
+	private final KryoPool pool = new KryoPool.Builder(new KryoFactory() {
+		@Override
+		public Kryo create() {
+			Kryo kryo = new Kryo();
+			kryo.setRegistrationRequired(true);
+			kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+			for (Class<?> cls : BUILTIN_CLASSES) {
+				kryo.register(cls);
+			}
+			for (Class<?> cls : registeredClasses) {
+				kryo.register(cls);
+			}
+			return kryo;
+		}
+	}).softReferences().build();
+
+	/**
+	 * 只注册框架自身的类，适用于参数和返回值均为基本类型、包装类型和String的服务
+	 */
+	public KryoSerializer() {
+		this(Collections.<Class<?>> emptyList());
+	}
+
+	/**
+	 * @param registeredClasses
+	 *            允许序列化的其他类，按顺序注册
+	 */
+	public KryoSerializer(List<Class<?>> registeredClasses) {
+		this.registeredClasses = new ArrayList<Class<?>>(registeredClasses);
+	}
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public <T> byte[] serialize(final T obj) {
+		return pool.run(new KryoCallback<byte[]>() {
+			@Override
+			public byte[] execute(Kryo kryo) {
+				Output output = new Output(BUFFER_SIZE, -1);
+				kryo.writeObject(output, obj);
+				return output.toBytes();
+			}
+		});
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, Class<T> cls) {
+		return deserialize(data, 0, data.length, cls);
+	}
+
+	@Override
+	public <T> void serialize(final T obj, OutputStream outputStream) {
+		final Output output = outputs.get();
+		output.setOutputStream(outputStream);
+		try {
+			pool.run(new KryoCallback<Void>() {
+				@Override
+				public Void execute(Kryo kryo) {
+					kryo.writeObject(output, obj);
+					return null;
+				}
+			});
+			output.flush();
+		} finally {
+			output.setOutputStream(null);
+		}
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, int offset, int length, final Class<T> cls) {
+		final Input input = inputs.get();
+		input.setBuffer(data, offset, length);
+		try {
+			return pool.run(new KryoCallback<T>() {
+				@Override
+				public T execute(Kryo kryo) {
+					return kryo.readObject(input, cls);
+				}
+			});
+		} finally {
+			// 释放对消息体的引用
+			input.setBuffer(EMPTY);
+		}
+	}
+
+}
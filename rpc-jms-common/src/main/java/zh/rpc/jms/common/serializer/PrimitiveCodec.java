@@ -0,0 +1,204 @@
+package zh.rpc.jms.common.serializer;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+
+/**
+ * 基本类型参数的紧凑编码：按方法签名将基本类型参数依次写为原始值(整数为zigzag变长编码，浮点数为定长)，
+ * 不携带类型标记；其余参数仍按Object[]经序列化方式处理。基本类型返回值以1字节类型标记加原始值编码
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class PrimitiveCodec {
+
+	// 返回值的类型标记即在此数组中的下标
+	private static final Class<?>[] RESULT_TYPES = { boolean.class, byte.class, char.class, short.class, int.class,
+			long.class, float.class, double.class };
+
+	private final Class<?>[] parameterTypes;
+
+	// 基本类型参数的数量
+	private final int primitiveCount;
+
+	// 基本类型参数编码后的最大长度
+	private final int maxPackedSize;
+
+	private PrimitiveCodec(Class<?>[] parameterTypes, int primitiveCount, int maxPackedSize) {
+		this.parameterTypes = parameterTypes;
+		this.primitiveCount = primitiveCount;
+		this.maxPackedSize = maxPackedSize;
+	}
+
+	/**
+	 * 为方法签名创建编码器，没有基本类型参数时返回null
+	 *
+	 * @param parameterTypes
+	 * @return
+	 */
+	public static PrimitiveCodec forParameters(Class<?>[] parameterTypes) {
+		int primitiveCount = 0;
+		int maxPackedSize = 0;
+		for (Class<?> type : parameterTypes) {
+			if (type.isPrimitive()) {
+				primitiveCount++;
+				maxPackedSize += PrimitiveWriter.maxSizeOf(type);
+			}
+		}
+		return primitiveCount > 0 ? new PrimitiveCodec(parameterTypes, primitiveCount, maxPackedSize) : null;
+	}
+
+	/**
+	 * 创建足以写入全部基本类型参数的PrimitiveWriter，参数须按签名顺序写入
+	 *
+	 * @return
+	 */
+	public PrimitiveWriter newWriter() {
+		return new PrimitiveWriter(maxPackedSize);
+	}
+
+	/**
+	 * 编码全部基本类型参数
+	 *
+	 * @param args
+	 * @return
+	 */
+	public byte[] pack(Object[] args) {
+		PrimitiveWriter writer = newWriter();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (parameterTypes[i].isPrimitive()) {
+				writer.write(parameterTypes[i], args[i]);
+			}
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * 按原顺序取出非基本类型参数，全部为基本类型时返回null
+	 *
+	 * @param args
+	 * @return
+	 */
+	public Object[] objects(Object[] args) {
+		if (primitiveCount == parameterTypes.length) {
+			return null;
+		}
+		Object[] objects = new Object[parameterTypes.length - primitiveCount];
+		int j = 0;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (!parameterTypes[i].isPrimitive()) {
+				objects[j++] = args[i];
+			}
+		}
+		return objects;
+	}
+
+	/**
+	 * 由编码后的基本类型参数和其余参数还原完整的参数数组
+	 *
+	 * @param packed
+	 * @param objects
+	 * @return
+	 */
+	public Object[] unpack(byte[] packed, Object[] objects) {
+		Object[] args = new Object[parameterTypes.length];
+		int[] position = new int[1];
+		int j = 0;
+		try {
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (parameterTypes[i].isPrimitive()) {
+					args[i] = read(parameterTypes[i], packed, position);
+				} else {
+					args[i] = objects[j++];
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new RpcJmsException("Packed parameters do not match method signature", e);
+		}
+		return args;
+	}
+
+	/**
+	 * 编码基本类型返回值
+	 *
+	 * @param type
+	 *            方法返回类型，须为void以外的基本类型
+	 * @param value
+	 * @return
+	 */
+	public static byte[] packResult(Class<?> type, Object value) {
+		for (int tag = 0; tag < RESULT_TYPES.length; tag++) {
+			if (RESULT_TYPES[tag] == type) {
+				PrimitiveWriter writer = new PrimitiveWriter(1 + PrimitiveWriter.maxSizeOf(type));
+				writer.writeByte((byte) tag);
+				writer.write(type, value);
+				return writer.toByteArray();
+			}
+		}
+		throw new IllegalArgumentException("Not a primitive result type: " + type);
+	}
+
+	/**
+	 * 解码packResult编码的返回值
+	 *
+	 * @param packed
+	 * @return 装箱后的返回值
+	 */
+	public static Object unpackResult(byte[] packed) {
+		try {
+			int[] position = new int[] { 1 };
+			return read(RESULT_TYPES[packed[0]], packed, position);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new RpcJmsException("Malformed packed result", e);
+		}
+	}
+
+	private static Object read(Class<?> type, byte[] buf, int[] position) {
+		if (type == boolean.class) {
+			return Boolean.valueOf(buf[position[0]++] != 0);
+		} else if (type == byte.class) {
+			return Byte.valueOf(buf[position[0]++]);
+		} else if (type == float.class) {
+			return Float.valueOf(Float.intBitsToFloat((int) readFixed(4, buf, position)));
+		} else if (type == double.class) {
+			return Double.valueOf(Double.longBitsToDouble(readFixed(8, buf, position)));
+		} else if (type == long.class) {
+			return Long.valueOf(unzigzag(readVarint(buf, position)));
+		} else if (type == char.class) {
+			return Character.valueOf((char) readVarint(buf, position));
+		}
+		int value = unzigzag((int) readVarint(buf, position));
+		if (type == short.class) {
+			return Short.valueOf((short) value);
+		}
+		return Integer.valueOf(value);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarint(byte[] buf, int[] position) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buf[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new RpcJmsException("Malformed varint in packed parameters");
+	}
+
+	private static long readFixed(int bytes, byte[] buf, int[] position) {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value |= (long) (buf[position[0]++] & 0xFF) << (i * 8);
+		}
+		return value;
+	}
+
+}
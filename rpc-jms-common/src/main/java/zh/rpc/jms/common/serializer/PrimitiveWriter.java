@@ -0,0 +1,126 @@
+package zh.rpc.jms.common.serializer;
+
+import java.util.Arrays;
+
+/**
+ * 按PrimitiveCodec的格式依次写入基本类型值，生成的服务代理直接调用，参数不经过装箱
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public final class PrimitiveWriter {
+
+	private final byte[] buf;
+
+	private int position;
+
+	/**
+	 * @param capacity
+	 *            待写入值编码后的最大长度
+	 */
+	public PrimitiveWriter(int capacity) {
+		this.buf = new byte[capacity];
+	}
+
+	public void writeBoolean(boolean value) {
+		buf[position++] = (byte) (value ? 1 : 0);
+	}
+
+	public void writeByte(byte value) {
+		buf[position++] = value;
+	}
+
+	public void writeChar(char value) {
+		writeVarint(value);
+	}
+
+	public void writeShort(short value) {
+		writeInt(value);
+	}
+
+	public void writeInt(int value) {
+		writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+	public void writeLong(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	public void writeFloat(float value) {
+		writeFixed(Float.floatToRawIntBits(value), 4);
+	}
+
+	public void writeDouble(double value) {
+		writeFixed(Double.doubleToRawLongBits(value), 8);
+	}
+
+	/**
+	 * 按类型写入装箱后的基本类型值
+	 *
+	 * @param type
+	 * @param value
+	 */
+	public void write(Class<?> type, Object value) {
+		if (type == boolean.class) {
+			writeBoolean((Boolean) value);
+		} else if (type == byte.class) {
+			writeByte((Byte) value);
+		} else if (type == char.class) {
+			writeChar((Character) value);
+		} else if (type == short.class) {
+			writeShort((Short) value);
+		} else if (type == int.class) {
+			writeInt((Integer) value);
+		} else if (type == long.class) {
+			writeLong((Long) value);
+		} else if (type == float.class) {
+			writeFloat((Float) value);
+		} else {
+			writeDouble((Double) value);
+		}
+	}
+
+	/**
+	 * 已写入的内容
+	 *
+	 * @return
+	 */
+	public byte[] toByteArray() {
+		return position == buf.length ? buf : Arrays.copyOf(buf, position);
+	}
+
+	/**
+	 * 类型编码后的最大长度
+	 *
+	 * @param type
+	 * @return
+	 */
+	static int maxSizeOf(Class<?> type) {
+		if (type == boolean.class || type == byte.class) {
+			return 1;
+		} else if (type == float.class) {
+			return 4;
+		} else if (type == double.class) {
+			return 8;
+		} else if (type == long.class) {
+			return 10;
+		} else {
+			return 5;
+		}
+	}
+
+	private void writeVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[position++] = (byte) value;
+	}
+
+	private void writeFixed(long value, int bytes) {
+		for (int i = 0; i < bytes; i++) {
+			buf[position++] = (byte) (value >>> (i * 8));
+		}
+	}
+
+}
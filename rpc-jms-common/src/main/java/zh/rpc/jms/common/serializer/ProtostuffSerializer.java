@@ -0,0 +1,43 @@
+package zh.rpc.jms.common.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import zh.rpc.jms.common.util.SerializationUtil;
+
+/**
+ * protostuff RuntimeSchema序列化，默认方式
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class ProtostuffSerializer implements Serializer {
+
+	public static final int ID = 1;
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public <T> byte[] serialize(T obj) {
+		return SerializationUtil.serialize(obj);
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, Class<T> cls) {
+		return SerializationUtil.deserialize(data, cls);
+	}
+
+	@Override
+	public <T> void serialize(T obj, OutputStream output) throws IOException {
+		SerializationUtil.serialize(obj, output);
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, int offset, int length, Class<T> cls) {
+		return SerializationUtil.deserialize(data, offset, length, cls);
+	}
+
+}
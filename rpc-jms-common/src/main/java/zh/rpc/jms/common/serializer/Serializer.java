@@ -0,0 +1,58 @@
+package zh.rpc.jms.common.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 序列化方式，客户端和服务端容器可分别指定；编码标识随消息属性rpcCodec传递，服务端按请求使用的方式解码并回复
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public interface Serializer {
+
+	/**
+	 * 编码标识，在所有序列化方式中唯一
+	 * 
+	 * @return
+	 */
+	int getId();
+
+	/**
+	 * 序列化（对象 -> 字节数组）
+	 * 
+	 * @param obj
+	 * @return
+	 */
+	<T> byte[] serialize(T obj);
+
+	/**
+	 * 反序列化（字节数组 -> 对象）
+	 * 
+	 * @param data
+	 * @param cls
+	 * @return
+	 */
+	<T> T deserialize(byte[] data, Class<T> cls);
+
+	/**
+	 * 序列化（对象 -> 输出流），用于写入复用的缓冲区
+	 * 
+	 * @param obj
+	 * @param output
+	 * @throws IOException
+	 */
+	<T> void serialize(T obj, OutputStream output) throws IOException;
+
+	/**
+	 * 反序列化（字节数组的指定区间 -> 对象），用于读取复用的缓冲区
+	 * 
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param cls
+	 * @return
+	 */
+	<T> T deserialize(byte[] data, int offset, int length, Class<T> cls);
+
+}
@@ -0,0 +1,85 @@
+package zh.rpc.jms.common.serializer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.util.MessageProperties;
+
+/**
+ * 按编码标识查找序列化方式，默认只注册protostuff；Kryo、JDK序列化可反序列化任意类，需显式注册后才能按标识查找，
+ * 服务端另按RpcMessageListenerContainer的allowedSerializers限制可接受的编码
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class Serializers {
+
+	private static final Map<Integer, Serializer> SERIALIZERS = new ConcurrentHashMap<Integer, Serializer>();
+
+	private static final Serializer DEFAULT = new ProtostuffSerializer();
+
+	static {
+		register(DEFAULT);
+	}
+
+	private Serializers() {
+	}
+
+	/**
+	 * 注册序列化方式，相同标识的已有实现被替换
+	 * 
+	 * @param serializer
+	 */
+	public static void register(Serializer serializer) {
+		SERIALIZERS.put(serializer.getId(), serializer);
+	}
+
+	/**
+	 * 默认序列化方式(protostuff)
+	 * 
+	 * @return
+	 */
+	public static Serializer getDefault() {
+		return DEFAULT;
+	}
+
+	public static Serializer get(int id) {
+		Serializer serializer = SERIALIZERS.get(id);
+		if (serializer == null) {
+			throw new RpcJmsException("Unknown serializer codec [" + id + "]");
+		}
+		return serializer;
+	}
+
+	/**
+	 * 在消息属性中写入编码标识
+	 * 
+	 * @param message
+	 * @param serializer
+	 * @throws JMSException
+	 */
+	public static void writeCodec(Message message, Serializer serializer) throws JMSException {
+		message.setIntProperty(MessageProperties.CODEC, serializer.getId());
+	}
+
+	/**
+	 * 消息使用的序列化方式，未携带编码标识时返回defaultSerializer
+	 * 
+	 * @param message
+	 * @param defaultSerializer
+	 * @return
+	 * @throws JMSException
+	 */
+	public static Serializer readCodec(Message message, Serializer defaultSerializer) throws JMSException {
+		if (!message.propertyExists(MessageProperties.CODEC)) {
+			return defaultSerializer;
+		}
+		int id = message.getIntProperty(MessageProperties.CODEC);
+		return id == defaultSerializer.getId() ? defaultSerializer : get(id);
+	}
+
+}
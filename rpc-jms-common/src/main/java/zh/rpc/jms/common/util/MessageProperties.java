@@ -0,0 +1,114 @@
+package zh.rpc.jms.common.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import zh.rpc.jms.common.bean.RpcBatchRequest;
+import zh.rpc.jms.common.bean.RpcRequest;
+
+/**
+ * RPC使用的JMS消息属性名
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class MessageProperties {
+
+	/**
+	 * 消息体为RpcBatchRequest/RpcBatchResponse
+	 */
+	public static final String BATCH = "rpcBatch";
+
+	/**
+	 * 批量请求中各请求的requestId，以逗号分隔；服务端拒绝整条批量消息时不反序列化消息体，据此逐个回复异常
+	 */
+	public static final String BATCH_REQUEST_IDS = "rpcBatchRequestIds";
+
+	/**
+	 * 客户端调用截止时间(毫秒)，超过后服务端不再处理
+	 */
+	public static final String DEADLINE = "rpcDeadline";
+
+	/**
+	 * 消息体的序列化编码标识，见Serializer.getId()
+	 */
+	public static final String CODEC = "rpcCodec";
+
+	/**
+	 * 服务接口名，服务端据此路由和拒绝请求，不需要反序列化消息体
+	 */
+	public static final String INTERFACE = "rpcInterface";
+
+	/**
+	 * 服务版本，无版本时为""
+	 */
+	public static final String VERSION = "rpcVersion";
+
+	/**
+	 * 方法名，使用紧凑请求头时改为METHOD_ID
+	 */
+	public static final String METHOD = "rpcMethod";
+
+	/**
+	 * 紧凑请求头的方法编号
+	 */
+	public static final String METHOD_ID = "rpcMethodId";
+
+	private MessageProperties() {
+	}
+
+	/**
+	 * 写入请求的路由属性：接口名、版本及方法名或方法编号
+	 * 
+	 * @param message
+	 * @param request
+	 * @throws JMSException
+	 */
+	public static void writeRouting(Message message, RpcRequest request) throws JMSException {
+		message.setStringProperty(INTERFACE, request.getInterfaceName());
+		message.setStringProperty(VERSION, request.getServiceVersion() != null ? request.getServiceVersion() : "");
+		if (request.hasMethodId()) {
+			message.setIntProperty(METHOD_ID, request.getMethodId());
+		} else if (request.getMethodName() != null) {
+			message.setStringProperty(METHOD, request.getMethodName());
+		}
+	}
+
+	/**
+	 * 写入批量请求中各请求的requestId
+	 * 
+	 * @param message
+	 * @param batch
+	 * @throws JMSException
+	 */
+	public static void writeBatchRequestIds(Message message, RpcBatchRequest batch) throws JMSException {
+		StringBuilder requestIds = new StringBuilder();
+		for (RpcRequest request : batch.getRequests()) {
+			if (requestIds.length() > 0) {
+				requestIds.append(',');
+			}
+			requestIds.append(request.getRequestId());
+		}
+		message.setStringProperty(BATCH_REQUEST_IDS, requestIds.toString());
+	}
+
+	/**
+	 * 读取批量请求中各请求的requestId，消息未携带时返回空列表
+	 * 
+	 * @param message
+	 * @return
+	 * @throws JMSException
+	 */
+	public static List<String> readBatchRequestIds(Message message) throws JMSException {
+		String requestIds = message.getStringProperty(BATCH_REQUEST_IDS);
+		if (requestIds == null || requestIds.isEmpty()) {
+			return new ArrayList<String>(0);
+		}
+		return Arrays.asList(requestIds.split(","));
+	}
+
+}
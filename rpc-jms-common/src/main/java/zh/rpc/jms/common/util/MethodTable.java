@@ -0,0 +1,149 @@
+package zh.rpc.jms.common.util;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 服务接口的方法编号表：接口方法按签名排序后依次编号，客户端和服务端由同一接口各自推导出相同的编号，
+ * 请求中以编号代替方法名和参数类型；摘要覆盖全部方法的签名和返回类型，用于发现两端接口不一致
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class MethodTable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final ConcurrentMap<Class<?>, MethodTable> TABLES = new ConcurrentHashMap<Class<?>, MethodTable>();
+
+	private final Class<?> serviceInterface;
+
+	// 按签名排序，下标即方法编号
+	private final Method[] methods;
+
+	private final Map<String, Integer> methodIds;
+
+	private final int digest;
+
+	private MethodTable(Class<?> serviceInterface) {
+		Map<String, Method> sorted = new HashMap<String, Method>();
+		for (Method method : serviceInterface.getMethods()) {
+			// 父接口中签名相同的方法只编号一次
+			String signature = signatureOf(method);
+			if (!sorted.containsKey(signature)) {
+				sorted.put(signature, method);
+			}
+		}
+		List<String> signatures = new ArrayList<String>(sorted.keySet());
+		Collections.sort(signatures);
+
+		this.serviceInterface = serviceInterface;
+		this.methods = new Method[signatures.size()];
+		this.methodIds = new HashMap<String, Integer>(signatures.size() * 2);
+		StringBuilder digestSource = new StringBuilder(serviceInterface.getName());
+		for (int i = 0; i < signatures.size(); i++) {
+			String signature = signatures.get(i);
+			methods[i] = sorted.get(signature);
+			methodIds.put(signature, Integer.valueOf(i));
+			digestSource.append(';').append(signature).append(methods[i].getReturnType().getName());
+		}
+		this.digest = digestOf(digestSource.toString());
+	}
+
+	/**
+	 * 获取服务接口的方法编号表，每个接口只构建一次
+	 *
+	 * @param serviceInterface
+	 * @return
+	 */
+	public static MethodTable of(Class<?> serviceInterface) {
+		MethodTable table = TABLES.get(serviceInterface);
+		if (table == null) {
+			MethodTable created = new MethodTable(serviceInterface);
+			table = TABLES.putIfAbsent(serviceInterface, created);
+			if (table == null) {
+				table = created;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * 方法签名：方法名(参数类型,...)
+	 *
+	 * @param method
+	 * @return
+	 */
+	public static String signatureOf(Method method) {
+		StringBuilder sb = new StringBuilder(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(parameterTypes[i].getName());
+		}
+		return sb.append(')').toString();
+	}
+
+	private static int digestOf(String source) {
+		try {
+			byte[] md5 = MessageDigest.getInstance("MD5").digest(source.getBytes(UTF_8));
+			return (md5[0] & 0xFF) << 24 | (md5[1] & 0xFF) << 16 | (md5[2] & 0xFF) << 8 | (md5[3] & 0xFF);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 方法编号，方法不属于该接口时返回null
+	 *
+	 * @param method
+	 * @return
+	 */
+	public Integer getMethodId(Method method) {
+		return methodIds.get(signatureOf(method));
+	}
+
+	/**
+	 * 按编号获取接口方法，编号越界时返回null
+	 *
+	 * @param methodId
+	 * @return
+	 */
+	public Method getMethod(int methodId) {
+		return methodId >= 0 && methodId < methods.length ? methods[methodId] : null;
+	}
+
+	/**
+	 * 按编号排列的全部接口方法
+	 *
+	 * @return
+	 */
+	public List<Method> getMethods() {
+		return Collections.unmodifiableList(Arrays.asList(methods));
+	}
+
+	public int size() {
+		return methods.length;
+	}
+
+	public int getDigest() {
+		return digest;
+	}
+
+	public Class<?> getServiceInterface() {
+		return serviceInterface;
+	}
+
+}
@@ -0,0 +1,37 @@
+package zh.rpc.jms.common.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求ID生成器：进程启动时生成一次随机节点前缀，之后以原子计数递增，
+ * 避免每次调用UUID.randomUUID()对SecureRandom的竞争
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RequestIdGenerator {
+
+	private static final String NODE_PREFIX;
+
+	private static final AtomicLong COUNTER = new AtomicLong();
+
+	static {
+		SecureRandom random = new SecureRandom();
+		NODE_PREFIX = Long.toString(random.nextLong() & Long.MAX_VALUE, Character.MAX_RADIX)
+				+ Long.toString(System.currentTimeMillis(), Character.MAX_RADIX) + "-";
+	}
+
+	private RequestIdGenerator() {
+	}
+
+	/**
+	 * 生成全局唯一的请求ID
+	 * 
+	 * @return
+	 */
+	public static String nextId() {
+		return NODE_PREFIX.concat(Long.toString(COUNTER.incrementAndGet(), Character.MAX_RADIX));
+	}
+
+}
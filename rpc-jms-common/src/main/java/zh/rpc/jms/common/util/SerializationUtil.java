@@ -7,15 +7,26 @@ import com.dyuproject.protostuff.runtime.RuntimeSchema;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class SerializationUtil {
 
-    private static Map<Class<?>, Schema<?>> cachedSchema = new ConcurrentHashMap<Class<?>, Schema<?>>();
+    private static ConcurrentMap<Class<?>, Schema<?>> cachedSchema = new ConcurrentHashMap<Class<?>, Schema<?>>();
 
     private static Objenesis objenesis = new ObjenesisStd(true);
 
+    // 每个线程复用一个缓冲区，避免每次序列化分配
+    private static final ThreadLocal<LinkedBuffer> BUFFERS = new ThreadLocal<LinkedBuffer>() {
+        @Override
+        protected LinkedBuffer initialValue() {
+            return LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        }
+    };
+
     private SerializationUtil() {
     }
 
@@ -25,7 +36,7 @@ public class SerializationUtil {
     @SuppressWarnings("unchecked")
     public static <T> byte[] serialize(T obj) {
         Class<T> cls = (Class<T>) obj.getClass();
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        LinkedBuffer buffer = BUFFERS.get();
         try {
             Schema<T> schema = getSchema(cls);
             return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
@@ -50,12 +61,57 @@ public class SerializationUtil {
         }
     }
 
+    /**
+     * 序列化（对象 -> 输出流），缓冲区写满时直接写入输出流，不生成完整的字节数组
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void serialize(T obj, OutputStream output) throws IOException {
+        Class<T> cls = (Class<T>) obj.getClass();
+        LinkedBuffer buffer = BUFFERS.get();
+        try {
+            ProtostuffIOUtil.writeTo(output, obj, getSchema(cls), buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 反序列化（字节数组的指定区间 -> 对象）
+     */
+    public static <T> T deserialize(byte[] data, int offset, int length, Class<T> cls) {
+        try {
+            T message = objenesis.newInstance(cls);
+            ProtostuffIOUtil.mergeFrom(data, offset, length, message, getSchema(cls));
+            return message;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 预先构建类型的schema，基本类型、数组、枚举、接口、抽象类及java.*下的类型不需要schema，返回false
+     */
+    public static boolean preloadSchema(Class<?> cls) {
+        if (cls.isPrimitive() || cls.isArray() || cls.isEnum() || cls.isInterface()
+                || Modifier.isAbstract(cls.getModifiers()) || cls.getName().startsWith("java.")) {
+            return false;
+        }
+        getSchema(cls);
+        return true;
+    }
+
+    /**
+     * 并发首次访问时可能重复构建，但只有一个schema会被缓存和使用
+     */
     @SuppressWarnings("unchecked")
     private static <T> Schema<T> getSchema(Class<T> cls) {
         Schema<T> schema = (Schema<T>) cachedSchema.get(cls);
         if (schema == null) {
             schema = RuntimeSchema.createFrom(cls);
-            cachedSchema.put(cls, schema);
+            Schema<T> existing = (Schema<T>) cachedSchema.putIfAbsent(cls, schema);
+            if (existing != null) {
+                schema = existing;
+            }
         }
         return schema;
     }
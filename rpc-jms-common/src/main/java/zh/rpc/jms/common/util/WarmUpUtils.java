@@ -0,0 +1,133 @@
+package zh.rpc.jms.common.util;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import zh.rpc.jms.common.bean.RpcBatchRequest;
+import zh.rpc.jms.common.bean.RpcBatchResponse;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.bean.RpcResponse;
+import zh.rpc.jms.common.serializer.Serializer;
+
+/**
+ * 启动预热：在开始收发消息前构建服务方法用到的schema，并可执行若干轮模拟的序列化/反序列化，
+ * 避免部署后最初的请求承担schema构建和解释执行的开销
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class WarmUpUtils {
+
+	private WarmUpUtils() {
+	}
+
+	/**
+	 * 为请求/响应对象及服务方法的参数和返回值类型(包括泛型参数和数组元素类型)构建schema
+	 *
+	 * @param methods
+	 * @return 构建了schema的类型数
+	 */
+	public static int preloadSchemas(Collection<Method> methods) {
+		Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+		types.add(RpcRequest.class);
+		types.add(RpcResponse.class);
+		types.add(RpcBatchRequest.class);
+		types.add(RpcBatchResponse.class);
+		for (Method method : methods) {
+			for (Type parameterType : method.getGenericParameterTypes()) {
+				collectTypes(parameterType, types);
+			}
+			collectTypes(method.getGenericReturnType(), types);
+		}
+		int preloaded = 0;
+		for (Class<?> type : types) {
+			if (SerializationUtil.preloadSchema(type)) {
+				preloaded++;
+			}
+		}
+		return preloaded;
+	}
+
+	/**
+	 * 以各方法的请求和响应(参数为默认值)执行rounds轮序列化和反序列化
+	 *
+	 * @param serializer
+	 * @param methods
+	 * @param rounds
+	 */
+	public static void runRounds(Serializer serializer, Collection<Method> methods, int rounds) {
+		for (int i = 0; i < rounds; i++) {
+			for (Method method : methods) {
+				Class<?>[] parameterTypes = method.getParameterTypes();
+				Object[] parameters = new Object[parameterTypes.length];
+				for (int j = 0; j < parameterTypes.length; j++) {
+					parameters[j] = defaultValue(parameterTypes[j]);
+				}
+				RpcRequest request = new RpcRequest();
+				request.setRequestId(RequestIdGenerator.nextId());
+				request.setInterfaceName(method.getDeclaringClass().getName());
+				request.setServiceVersion("");
+				request.setMethodName(method.getName());
+				request.setParameterTypes(parameterTypes);
+				request.setParameters(parameters);
+				serializer.deserialize(serializer.serialize(request), RpcRequest.class);
+
+				RpcResponse response = new RpcResponse();
+				response.setRequestId(request.getRequestId());
+				response.setResult(defaultValue(method.getReturnType()));
+				serializer.deserialize(serializer.serialize(response), RpcResponse.class);
+			}
+		}
+	}
+
+	private static void collectTypes(Type type, Set<Class<?>> types) {
+		if (type instanceof Class) {
+			Class<?> cls = (Class<?>) type;
+			if (cls.isArray()) {
+				collectTypes(cls.getComponentType(), types);
+			} else {
+				types.add(cls);
+			}
+		} else if (type instanceof ParameterizedType) {
+			collectTypes(((ParameterizedType) type).getRawType(), types);
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+				collectTypes(argument, types);
+			}
+		} else if (type instanceof GenericArrayType) {
+			collectTypes(((GenericArrayType) type).getGenericComponentType(), types);
+		} else if (type instanceof WildcardType) {
+			for (Type bound : ((WildcardType) type).getUpperBounds()) {
+				collectTypes(bound, types);
+			}
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		} else if (type == boolean.class) {
+			return Boolean.FALSE;
+		} else if (type == char.class) {
+			return Character.valueOf((char) 0);
+		} else if (type == byte.class) {
+			return Byte.valueOf((byte) 0);
+		} else if (type == short.class) {
+			return Short.valueOf((short) 0);
+		} else if (type == int.class) {
+			return Integer.valueOf(0);
+		} else if (type == long.class) {
+			return Long.valueOf(0L);
+		} else if (type == float.class) {
+			return Float.valueOf(0F);
+		} else {
+			return Double.valueOf(0D);
+		}
+	}
+
+}
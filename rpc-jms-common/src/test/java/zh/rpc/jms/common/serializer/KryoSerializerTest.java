@@ -0,0 +1,66 @@
+package zh.rpc.jms.common.serializer;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import com.esotericsoftware.kryo.KryoException;
+
+import zh.rpc.jms.common.bean.RpcRequest;
+
+public class KryoSerializerTest extends TestCase {
+
+	public void testRoundTripOfFrameworkClasses() {
+		KryoSerializer serializer = new KryoSerializer();
+		RpcRequest request = new RpcRequest();
+		request.setRequestId("1");
+		request.setMethodName("hello");
+		request.setParameterTypes(new Class<?>[] { String.class });
+		request.setParameters(new Object[] { "World" });
+
+		RpcRequest copy = serializer.deserialize(serializer.serialize(request), RpcRequest.class);
+		assertEquals("hello", copy.getMethodName());
+		assertEquals(String.class, copy.getParameterTypes()[0]);
+		assertEquals("World", copy.getParameters()[0]);
+	}
+
+	public void testUnregisteredClassIsRejected() {
+		RpcRequest request = new RpcRequest();
+		request.setParameters(new Object[] { new Date() });
+		try {
+			new KryoSerializer().serialize(request);
+			fail("unregistered class must not be serialized");
+		} catch (KryoException expected) {
+		}
+		byte[] data = new KryoSerializer(Arrays.<Class<?>> asList(Date.class)).serialize(request);
+		try {
+			new KryoSerializer().deserialize(data, RpcRequest.class);
+			fail("unregistered class must not be deserialized");
+		} catch (KryoException expected) {
+		}
+	}
+
+	public void testRegisteredClass() {
+		KryoSerializer serializer = new KryoSerializer(Arrays.<Class<?>> asList(Date.class));
+		RpcRequest request = new RpcRequest();
+		request.setParameters(new Object[] { new Date(42) });
+		RpcRequest copy = serializer.deserialize(serializer.serialize(request), RpcRequest.class);
+		assertEquals(new Date(42), copy.getParameters()[0]);
+	}
+
+	public void testOnlyProtostuffIsRegisteredByDefault() {
+		assertSame(Serializers.getDefault(), Serializers.get(ProtostuffSerializer.ID));
+		try {
+			Serializers.get(JdkSerializer.ID);
+			fail("JDK serialization must be opt-in");
+		} catch (RuntimeException expected) {
+		}
+		try {
+			Serializers.get(KryoSerializer.ID);
+			fail("Kryo must be opt-in");
+		} catch (RuntimeException expected) {
+		}
+	}
+
+}
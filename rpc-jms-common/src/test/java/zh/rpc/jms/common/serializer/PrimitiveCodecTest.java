@@ -0,0 +1,101 @@
+package zh.rpc.jms.common.serializer;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.common.bean.RpcResponse;
+import zh.rpc.jms.common.exception.RpcJmsException;
+
+public class PrimitiveCodecTest extends TestCase {
+
+	private static final Class<?>[] ALL_TYPES = { int.class, long.class, String.class, boolean.class, char.class,
+			short.class, byte.class, float.class, double.class };
+
+	public void testNoCodecWithoutPrimitiveParameters() {
+		assertNull(PrimitiveCodec.forParameters(new Class<?>[] { String.class, Integer.class }));
+		assertNull(PrimitiveCodec.forParameters(new Class<?>[0]));
+	}
+
+	public void testRoundTripOfBoundaryValues() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(ALL_TYPES);
+		Object[][] cases = {
+				{ Integer.MIN_VALUE, Long.MIN_VALUE, "a", true, Character.MAX_VALUE, Short.MIN_VALUE, Byte.MIN_VALUE,
+						Float.NaN, Double.NEGATIVE_INFINITY },
+				{ Integer.MAX_VALUE, Long.MAX_VALUE, null, false, Character.MIN_VALUE, Short.MAX_VALUE,
+						Byte.MAX_VALUE, -0.0f, Double.MIN_VALUE },
+				{ -1, -1L, "", true, 'x', (short) -1, (byte) -1, 1.5f, -2.25 } };
+		for (Object[] args : cases) {
+			byte[] packed = codec.pack(args);
+			Object[] objects = codec.objects(args);
+			assertEquals(1, objects.length);
+			assertTrue(Arrays.equals(args, codec.unpack(packed, objects)));
+		}
+	}
+
+	public void testSmallIntegersUseOneByte() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(new Class<?>[] { int.class });
+		// zigzag：0,-1,1,-2...映射为0,1,2,3...，绝对值较小的负数同样只占1字节
+		assertEquals(1, codec.pack(new Object[] { 0 }).length);
+		assertEquals(1, codec.pack(new Object[] { -1 }).length);
+		assertEquals(1, codec.pack(new Object[] { 63 }).length);
+		assertEquals(1, codec.pack(new Object[] { -64 }).length);
+		assertEquals(2, codec.pack(new Object[] { 64 }).length);
+		assertEquals(5, codec.pack(new Object[] { Integer.MIN_VALUE }).length);
+		assertTrue(Arrays.equals(new byte[] { 3 }, codec.pack(new Object[] { -2 })));
+	}
+
+	public void testLongUsesAtMostTenBytes() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(new Class<?>[] { long.class });
+		assertEquals(10, codec.pack(new Object[] { Long.MIN_VALUE }).length);
+		assertEquals(1, codec.pack(new Object[] { -1L }).length);
+	}
+
+	public void testWriterMatchesPack() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(ALL_TYPES);
+		Object[] args = { -300, 1L << 40, "s", true, 'z', (short) 1000, (byte) 7, 3.5f, 1e100 };
+		PrimitiveWriter writer = codec.newWriter();
+		writer.writeInt(-300);
+		writer.writeLong(1L << 40);
+		writer.writeBoolean(true);
+		writer.writeChar('z');
+		writer.writeShort((short) 1000);
+		writer.writeByte((byte) 7);
+		writer.writeFloat(3.5f);
+		writer.writeDouble(1e100);
+		assertTrue(Arrays.equals(codec.pack(args), writer.toByteArray()));
+	}
+
+	public void testAllPrimitiveParametersHaveNoObjects() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(new Class<?>[] { int.class, int.class });
+		Object[] args = { 40, 2 };
+		assertNull(codec.objects(args));
+		assertTrue(Arrays.equals(args, codec.unpack(codec.pack(args), null)));
+	}
+
+	public void testTruncatedInputIsRejected() {
+		PrimitiveCodec codec = PrimitiveCodec.forParameters(new Class<?>[] { int.class, long.class });
+		byte[] packed = codec.pack(new Object[] { 1, Long.MAX_VALUE });
+		try {
+			codec.unpack(Arrays.copyOf(packed, packed.length - 1), null);
+			fail("truncated input must be rejected");
+		} catch (RpcJmsException expected) {
+		}
+	}
+
+	public void testPackedResult() {
+		Object[] values = { true, (byte) -128, 'q', (short) -5, Integer.MIN_VALUE, Long.MAX_VALUE, 0.1f, Math.PI };
+		Class<?>[] types = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class,
+				double.class };
+		for (int i = 0; i < values.length; i++) {
+			RpcResponse response = new RpcResponse();
+			response.setPrimitiveResult(PrimitiveCodec.packResult(types[i], values[i]));
+			assertEquals(values[i], response.getResult());
+		}
+		try {
+			PrimitiveCodec.packResult(String.class, "x");
+			fail("only primitive results can be packed");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
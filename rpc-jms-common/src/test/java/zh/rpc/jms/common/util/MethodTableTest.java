@@ -0,0 +1,54 @@
+package zh.rpc.jms.common.util;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+public class MethodTableTest extends TestCase {
+
+	public interface Base {
+		String find(String key);
+	}
+
+	public interface Lookup extends Base {
+		String find(String key);
+
+		String find(String key, int limit);
+
+		int count();
+	}
+
+	public interface LookupV2 {
+		String find(String key);
+
+		String find(String key, int limit);
+
+		long count();
+	}
+
+	public void testMethodsAreNumberedBySignature() throws Exception {
+		MethodTable table = MethodTable.of(Lookup.class);
+		// 父接口中签名相同的方法只编号一次
+		assertEquals(3, table.size());
+		assertEquals("count()", MethodTable.signatureOf(table.getMethod(0)));
+		assertEquals("find(java.lang.String)", MethodTable.signatureOf(table.getMethod(1)));
+		assertEquals("find(java.lang.String,int)", MethodTable.signatureOf(table.getMethod(2)));
+
+		Method inherited = Base.class.getMethod("find", String.class);
+		assertEquals(Integer.valueOf(1), table.getMethodId(inherited));
+		assertNull(table.getMethodId(Object.class.getMethod("toString")));
+		assertNull(table.getMethod(-1));
+		assertNull(table.getMethod(3));
+	}
+
+	public void testTableIsBuiltOnce() {
+		assertSame(MethodTable.of(Lookup.class), MethodTable.of(Lookup.class));
+	}
+
+	public void testDigestCoversReturnTypes() {
+		assertEquals(MethodTable.of(Lookup.class).getDigest(), MethodTable.of(Lookup.class).getDigest());
+		assertFalse(MethodTable.of(Lookup.class).getDigest() == MethodTable.of(LookupV2.class).getDigest());
+		assertFalse(MethodTable.of(Lookup.class).getDigest() == MethodTable.of(Base.class).getDigest());
+	}
+
+}
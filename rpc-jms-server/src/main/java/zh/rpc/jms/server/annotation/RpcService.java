@@ -25,4 +25,28 @@ public @interface RpcService {
 	 * @return
 	 */
 	String version() default "";
+
+	/**
+	 * 服务抛出异常时回传给客户端的方式，默认回传完整的异常对象；异常频繁或不需要异常栈的服务可指定COMPACT
+	 * 
+	 * @return
+	 */
+	ExceptionEncoding exceptionEncoding() default ExceptionEncoding.FULL;
+
+	/**
+	 * COMPACT方式回传的异常栈深度，0为不回传异常栈
+	 * 
+	 * @return
+	 */
+	int stackDepth() default 0;
+
+	/**
+	 * 异常回传方式
+	 */
+	enum ExceptionEncoding {
+		// 序列化完整的异常对象，包括异常栈和cause链，便于排查问题；异常对象无法序列化时退回COMPACT
+		FULL,
+		// 只回传异常类名、消息、错误码及stackDepth层异常栈，客户端按类名重建异常
+		COMPACT
+	}
 }
@@ -1,11 +1,14 @@
 package zh.rpc.jms.server.annotation;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 
+import zh.rpc.jms.server.invoker.InvokerFactory;
+
 public class RpcServiceParser {
 
 	/**
@@ -13,6 +16,11 @@ public class RpcServiceParser {
 	 */
 	private Map<String, Object> serviceMap = new HashMap<String, Object>();
 
+	/**
+	 * 存放 服务名 与 方法分派表 之间的映射关系
+	 */
+	private Map<String, ServiceDispatchTable> dispatchTables = new HashMap<String, ServiceDispatchTable>();
+
 	/**
 	 * serviceName和serviceVersion的连接符
 	 */
@@ -33,10 +41,24 @@ public class RpcServiceParser {
 				String serviceVersion = rpcService.version();
 				String fullName = getServiceFullName(serviceName, serviceVersion);
 				serviceMap.put(fullName, serviceBean);
+				ServiceDispatchTable dispatchTable = new ServiceDispatchTable(serviceBean, rpcService);
+				dispatchTable.setInvoker(InvokerFactory.create(InvokerFactory.Strategy.REFLECTION, dispatchTable));
+				dispatchTables.put(fullName, dispatchTable);
 			}
 		}
 	}
 
+	/**
+	 * 按调用方式为所有服务重新创建ServiceInvoker，解析服务时默认使用反射
+	 * 
+	 * @param strategy
+	 */
+	public void createInvokers(InvokerFactory.Strategy strategy) {
+		for (ServiceDispatchTable dispatchTable : dispatchTables.values()) {
+			dispatchTable.setInvoker(InvokerFactory.create(strategy, dispatchTable));
+		}
+	}
+
 	/**
 	 * 获取服务的全称(serviceName-serviceVersion)
 	 * 
@@ -59,4 +81,12 @@ public class RpcServiceParser {
 		return serviceMap.get(getServiceFullName(serviceName, serviceVersion));
 	}
 
+	public ServiceDispatchTable getDispatchTable(String serviceName, String serviceVersion) {
+		return dispatchTables.get(getServiceFullName(serviceName, serviceVersion));
+	}
+
+	public Collection<ServiceDispatchTable> getDispatchTables() {
+		return dispatchTables.values();
+	}
+
 }
@@ -0,0 +1,155 @@
+package zh.rpc.jms.server.annotation;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.serializer.PrimitiveCodec;
+import zh.rpc.jms.common.util.MethodTable;
+import zh.rpc.jms.server.invoker.ServiceInvoker;
+
+/**
+ * 服务的方法分派表：按服务接口的方法编号排列服务实现类上的方法，解析服务时一次性完成方法查找和访问检查；
+ * 紧凑请求头按编号直接取用，按方法名和参数类型的请求经方法名索引查找编号
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class ServiceDispatchTable {
+
+	private final Object serviceBean;
+
+	private final MethodTable methodTable;
+
+	// 下标为方法编号
+	private final Method[] targets;
+
+	// 各方法基本类型参数的编码器，没有基本类型参数时为null
+	private final PrimitiveCodec[] primitiveCodecs;
+
+	// 方法名到方法编号的索引，重载方法有多个编号
+	private final Map<String, int[]> methodIdsByName;
+
+	private final RpcService.ExceptionEncoding exceptionEncoding;
+
+	private final int stackDepth;
+
+	// 按方法编号调用服务对象，由RpcServiceParser按调用方式设置
+	private volatile ServiceInvoker invoker;
+
+	public ServiceDispatchTable(Object serviceBean, RpcService rpcService) {
+		this.serviceBean = serviceBean;
+		this.methodTable = MethodTable.of(rpcService.value());
+		this.exceptionEncoding = rpcService.exceptionEncoding();
+		this.stackDepth = rpcService.stackDepth();
+		this.targets = new Method[methodTable.size()];
+		this.primitiveCodecs = new PrimitiveCodec[methodTable.size()];
+		this.methodIdsByName = new HashMap<String, int[]>(targets.length * 2);
+		for (int i = 0; i < targets.length; i++) {
+			Method method = methodTable.getMethod(i);
+			int[] ids = methodIdsByName.get(method.getName());
+			if (ids == null) {
+				ids = new int[] { i };
+			} else {
+				ids = Arrays.copyOf(ids, ids.length + 1);
+				ids[ids.length - 1] = i;
+			}
+			methodIdsByName.put(method.getName(), ids);
+			try {
+				targets[i] = serviceBean.getClass().getMethod(method.getName(), method.getParameterTypes());
+				targets[i].setAccessible(true);
+				primitiveCodecs[i] = PrimitiveCodec.forParameters(method.getParameterTypes());
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException("Service bean [" + serviceBean.getClass().getName()
+						+ "] does not implement " + method, e);
+			}
+		}
+	}
+
+	/**
+	 * 校验请求的方法编号，客户端的方法表摘要不一致(两端接口定义不同)时拒绝调用
+	 *
+	 * @param methodId
+	 * @param methodDigest
+	 */
+	public void checkMethodId(int methodId, int methodDigest) {
+		if (methodDigest != methodTable.getDigest()) {
+			throw new RpcJmsException("Method table digest mismatch for [" + methodTable.getServiceInterface().getName()
+					+ "], client and server interface definitions differ");
+		}
+		if (methodId < 0 || methodId >= targets.length) {
+			throw new RpcJmsException("Unknown method id " + methodId + " for ["
+					+ methodTable.getServiceInterface().getName() + "]");
+		}
+	}
+
+	/**
+	 * 按方法名和参数类型查找方法编号，接口中没有该方法时拒绝调用
+	 *
+	 * @param methodName
+	 * @param parameterTypes
+	 * @return
+	 */
+	public int getMethodId(String methodName, Class<?>[] parameterTypes) {
+		int[] ids = methodIdsByName.get(methodName);
+		if (ids != null) {
+			if (parameterTypes == null) {
+				parameterTypes = new Class<?>[0];
+			}
+			for (int id : ids) {
+				if (Arrays.equals(methodTable.getMethod(id).getParameterTypes(), parameterTypes)) {
+					return id;
+				}
+			}
+		}
+		throw new RpcJmsException("Unknown method " + methodName + Arrays.toString(parameterTypes) + " for ["
+				+ methodTable.getServiceInterface().getName() + "]");
+	}
+
+	/**
+	 * 按已校验的方法编号获取服务方法
+	 *
+	 * @param methodId
+	 * @return
+	 */
+	public Method getTarget(int methodId) {
+		return targets[methodId];
+	}
+
+	/**
+	 * 方法基本类型参数的编码器，调用前需经checkMethodId或getMethodId校验编号
+	 *
+	 * @param methodId
+	 * @return
+	 */
+	public PrimitiveCodec getPrimitiveCodec(int methodId) {
+		return primitiveCodecs[methodId];
+	}
+
+	public Object getServiceBean() {
+		return serviceBean;
+	}
+
+	public MethodTable getMethodTable() {
+		return methodTable;
+	}
+
+	public ServiceInvoker getInvoker() {
+		return invoker;
+	}
+
+	void setInvoker(ServiceInvoker invoker) {
+		this.invoker = invoker;
+	}
+
+	public RpcService.ExceptionEncoding getExceptionEncoding() {
+		return exceptionEncoding;
+	}
+
+	public int getStackDepth() {
+		return stackDepth;
+	}
+
+}
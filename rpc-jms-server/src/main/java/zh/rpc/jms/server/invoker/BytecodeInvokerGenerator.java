@@ -0,0 +1,322 @@
+package zh.rpc.jms.server.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import zh.rpc.jms.common.util.MethodTable;
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+
+/**
+ * 使用ASM为服务生成ServiceInvoker：按方法编号switch，经服务接口直接调用服务对象的方法，
+ * 参数强制转换为声明类型，不经过反射，JIT可以内联到业务代码。
+ * 与反射调用一致，参数类型不符或基本类型参数为null时抛出IllegalArgumentException，只有服务方法抛出的异常包装为InvocationTargetException
+ *
+ * <pre>
+ * public final class IHelloService$$RpcInvoker$$0 implements ServiceInvoker {
+ * 	private final IHelloService target;
+ *
+ * 	public Object invoke(int methodId, Object[] args) throws InvocationTargetException {
+ * 		switch (methodId) {
+ * 		case 0:
+ * 			String a0;
+ * 			try {
+ * 				a0 = (String) args[0];
+ * 			} catch (RuntimeException ex) {
+ * 				throw new IllegalArgumentException("argument type mismatch", ex);
+ * 			}
+ * 			try {
+ * 				return target.hello(a0);
+ * 			} catch (Throwable ex) {
+ * 				throw new InvocationTargetException(ex);
+ * 			}
+ * 		...
+ * 		}
+ * 		throw new IllegalArgumentException("Unknown method id");
+ * 	}
+ * }
+ * </pre>
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+class BytecodeInvokerGenerator implements Opcodes {
+
+	private static final String INVOKER_SUFFIX = "$$RpcInvoker$$";
+
+	private static final AtomicInteger INVOKER_COUNTER = new AtomicInteger();
+
+	private static final String OBJECT = Type.getInternalName(Object.class);
+
+	private static final String INVOKE_DESC = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+	private static final String INVOCATION_TARGET_EXCEPTION = Type.getInternalName(InvocationTargetException.class);
+
+	private static final String ILLEGAL_ARGUMENT_EXCEPTION = Type.getInternalName(IllegalArgumentException.class);
+
+	private BytecodeInvokerGenerator() {
+	}
+
+	/**
+	 * 生成并实例化服务的ServiceInvoker
+	 *
+	 * @param dispatchTable
+	 * @return
+	 * @throws Exception
+	 */
+	static ServiceInvoker generate(ServiceDispatchTable dispatchTable) throws Exception {
+		MethodTable methodTable = dispatchTable.getMethodTable();
+		Class<?> serviceInterface = methodTable.getServiceInterface();
+		if (!Modifier.isPublic(serviceInterface.getModifiers())) {
+			throw new IllegalArgumentException("Service interface [" + serviceInterface.getName()
+					+ "] must be public");
+		}
+		for (Method method : methodTable.getMethods()) {
+			checkSignature(method);
+		}
+		String className = serviceInterface.getName() + INVOKER_SUFFIX + INVOKER_COUNTER.getAndIncrement();
+		byte[] bytecode = generateClass(className.replace('.', '/'), methodTable);
+		Class<?> invokerClass = new InvokerClassLoader(serviceInterface.getClassLoader())
+				.define(className, bytecode);
+		return (ServiceInvoker) invokerClass.getConstructor(Object.class).newInstance(
+				dispatchTable.getServiceBean());
+	}
+
+	/**
+	 * 实现类由单独的ClassLoader定义，与服务接口不在同一运行时包内，只能访问public类型
+	 *
+	 * @param method
+	 */
+	private static void checkSignature(Method method) {
+		checkPublic(method.getReturnType(), method);
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			checkPublic(parameterType, method);
+		}
+		for (Class<?> exceptionType : method.getExceptionTypes()) {
+			checkPublic(exceptionType, method);
+		}
+	}
+
+	private static void checkPublic(Class<?> type, Method method) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (!type.isPrimitive() && !Modifier.isPublic(type.getModifiers())) {
+			throw new IllegalArgumentException("Type [" + type.getName() + "] in method [" + method
+					+ "] must be public");
+		}
+	}
+
+	private static byte[] generateClass(String internalName, MethodTable methodTable) {
+		String targetType = Type.getInternalName(methodTable.getServiceInterface());
+		String targetDesc = Type.getDescriptor(methodTable.getServiceInterface());
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, OBJECT,
+				new String[] { Type.getInternalName(ServiceInvoker.class) });
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, "target", targetDesc, null, null).visitEnd();
+
+		generateConstructor(cw, internalName, targetType, targetDesc);
+		generateInvoke(cw, internalName, targetType, targetDesc, methodTable);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void generateConstructor(ClassWriter cw, String internalName, String targetType, String targetDesc) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(CHECKCAST, targetType);
+		mv.visitFieldInsn(PUTFIELD, internalName, "target", targetDesc);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateInvoke(ClassWriter cw, String internalName, String targetType, String targetDesc,
+			MethodTable methodTable) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invoke", INVOKE_DESC, null,
+				new String[] { INVOCATION_TARGET_EXCEPTION });
+		mv.visitCode();
+		Label unknown = new Label();
+		int size = methodTable.size();
+		if (size > 0) {
+			Label argumentMismatch = new Label();
+			Label targetException = new Label();
+			Label[] cases = new Label[size];
+			for (int i = 0; i < size; i++) {
+				cases[i] = new Label();
+			}
+			mv.visitVarInsn(ILOAD, 1);
+			mv.visitTableSwitchInsn(0, size - 1, unknown, cases);
+			for (int i = 0; i < size; i++) {
+				mv.visitLabel(cases[i]);
+				generateCase(mv, internalName, targetType, targetDesc, methodTable.getMethod(i), argumentMismatch,
+						targetException);
+			}
+			// catch (RuntimeException ex) { throw new IllegalArgumentException("argument type mismatch", ex); }
+			mv.visitLabel(argumentMismatch);
+			mv.visitTypeInsn(NEW, ILLEGAL_ARGUMENT_EXCEPTION);
+			mv.visitInsn(DUP_X1);
+			mv.visitInsn(SWAP);
+			mv.visitLdcInsn("argument type mismatch");
+			mv.visitInsn(SWAP);
+			mv.visitMethodInsn(INVOKESPECIAL, ILLEGAL_ARGUMENT_EXCEPTION, "<init>",
+					"(Ljava/lang/String;Ljava/lang/Throwable;)V", false);
+			mv.visitInsn(ATHROW);
+			// catch (Throwable ex) { throw new InvocationTargetException(ex); }
+			mv.visitLabel(targetException);
+			mv.visitTypeInsn(NEW, INVOCATION_TARGET_EXCEPTION);
+			mv.visitInsn(DUP_X1);
+			mv.visitInsn(SWAP);
+			mv.visitMethodInsn(INVOKESPECIAL, INVOCATION_TARGET_EXCEPTION, "<init>", "(Ljava/lang/Throwable;)V",
+					false);
+			mv.visitInsn(ATHROW);
+		}
+		mv.visitLabel(unknown);
+		mv.visitTypeInsn(NEW, ILLEGAL_ARGUMENT_EXCEPTION);
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn("Unknown method id");
+		mv.visitMethodInsn(INVOKESPECIAL, ILLEGAL_ARGUMENT_EXCEPTION, "<init>", "(Ljava/lang/String;)V", false);
+		mv.visitInsn(ATHROW);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * 先将参数转换为声明类型存入局部变量(转换失败跳转到argumentMismatch)，
+	 * 再 return target.method(a0, ...)(抛出异常跳转到targetException)，基本类型返回值装箱，void方法返回null
+	 */
+	private static void generateCase(MethodVisitor mv, String internalName, String targetType, String targetDesc,
+			Method method, Label argumentMismatch, Label targetException) {
+		Type[] argumentTypes = Type.getArgumentTypes(method);
+		Type returnType = Type.getReturnType(method);
+		if (argumentTypes.length > 0) {
+			Label convertStart = new Label();
+			Label convertEnd = new Label();
+			mv.visitTryCatchBlock(convertStart, convertEnd, argumentMismatch, "java/lang/RuntimeException");
+			mv.visitLabel(convertStart);
+			// 局部变量0-2为this、methodId、args
+			int slot = 3;
+			for (int i = 0; i < argumentTypes.length; i++) {
+				mv.visitVarInsn(ALOAD, 2);
+				pushInt(mv, i);
+				mv.visitInsn(AALOAD);
+				unbox(mv, argumentTypes[i]);
+				mv.visitVarInsn(argumentTypes[i].getOpcode(ISTORE), slot);
+				slot += argumentTypes[i].getSize();
+			}
+			mv.visitLabel(convertEnd);
+		}
+
+		Label invokeStart = new Label();
+		Label invokeEnd = new Label();
+		mv.visitTryCatchBlock(invokeStart, invokeEnd, targetException, "java/lang/Throwable");
+		mv.visitLabel(invokeStart);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, "target", targetDesc);
+		int slot = 3;
+		for (int i = 0; i < argumentTypes.length; i++) {
+			mv.visitVarInsn(argumentTypes[i].getOpcode(ILOAD), slot);
+			slot += argumentTypes[i].getSize();
+		}
+		mv.visitMethodInsn(INVOKEINTERFACE, targetType, method.getName(), Type.getMethodDescriptor(method), true);
+		mv.visitLabel(invokeEnd);
+		if (returnType.getSort() == Type.VOID) {
+			mv.visitInsn(ACONST_NULL);
+		} else {
+			box(mv, returnType);
+		}
+		mv.visitInsn(ARETURN);
+	}
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	private static void box(MethodVisitor mv, Type type) {
+		String wrapper = wrapperOf(type);
+		if (wrapper != null) {
+			mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";",
+					false);
+		}
+	}
+
+	private static void unbox(MethodVisitor mv, Type type) {
+		String wrapper = wrapperOf(type);
+		if (wrapper != null) {
+			mv.visitTypeInsn(CHECKCAST, wrapper);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(),
+					false);
+		} else if (!OBJECT.equals(type.getInternalName())) {
+			mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+		}
+	}
+
+	/**
+	 * 基本类型对应的包装类，非基本类型返回null
+	 *
+	 * @param type
+	 * @return
+	 */
+	private static String wrapperOf(Type type) {
+		switch (type.getSort()) {
+		case Type.BOOLEAN:
+			return "java/lang/Boolean";
+		case Type.CHAR:
+			return "java/lang/Character";
+		case Type.BYTE:
+			return "java/lang/Byte";
+		case Type.SHORT:
+			return "java/lang/Short";
+		case Type.INT:
+			return "java/lang/Integer";
+		case Type.FLOAT:
+			return "java/lang/Float";
+		case Type.LONG:
+			return "java/lang/Long";
+		case Type.DOUBLE:
+			return "java/lang/Double";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * 优先从服务接口的ClassLoader加载，找不到时(如rpc-jms-server位于父加载器之外)再使用框架自身的ClassLoader
+	 */
+	private static class InvokerClassLoader extends ClassLoader {
+
+		InvokerClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String className, byte[] bytecode) {
+			return defineClass(className, bytecode, 0, bytecode.length,
+					ServiceInvoker.class.getProtectionDomain());
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			return ServiceInvoker.class.getClassLoader().loadClass(name);
+		}
+	}
+
+}
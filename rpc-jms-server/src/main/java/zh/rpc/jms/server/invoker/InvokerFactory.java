@@ -0,0 +1,54 @@
+package zh.rpc.jms.server.invoker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+
+/**
+ * 按调用方式创建服务的ServiceInvoker
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public final class InvokerFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InvokerFactory.class);
+
+	/**
+	 * 服务方法的调用方式
+	 */
+	public enum Strategy {
+		// Method.invoke
+		REFLECTION,
+		// 绑定服务对象的MethodHandle
+		METHOD_HANDLE,
+		// 使用ASM生成按方法编号直接调用的实现类，失败时退回REFLECTION
+		BYTECODE
+	}
+
+	private InvokerFactory() {
+	}
+
+	public static ServiceInvoker create(Strategy strategy, ServiceDispatchTable dispatchTable) {
+		String serviceName = dispatchTable.getMethodTable().getServiceInterface().getName();
+		try {
+			switch (strategy) {
+			case METHOD_HANDLE:
+				return new MethodHandleServiceInvoker(dispatchTable);
+			case BYTECODE:
+				return BytecodeInvokerGenerator.generate(dispatchTable);
+			default:
+				return new ReflectionServiceInvoker(dispatchTable);
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Could not create " + strategy + " invoker for [" + serviceName
+					+ "], falling back to reflection", e);
+		} catch (LinkageError e) {
+			LOGGER.warn("Could not create " + strategy + " invoker for [" + serviceName
+					+ "], falling back to reflection", e);
+		}
+		return new ReflectionServiceInvoker(dispatchTable);
+	}
+
+}
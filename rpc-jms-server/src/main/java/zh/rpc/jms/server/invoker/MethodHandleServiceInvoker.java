@@ -0,0 +1,73 @@
+package zh.rpc.jms.server.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+
+/**
+ * 通过绑定了服务对象的MethodHandle调用，每个方法的MethodHandle预先转换为(Object[])Object，
+ * 调用时不再做访问检查和参数类型适配的查找。调用前先校验参数，与反射调用一致，
+ * 参数个数或类型不符、基本类型参数为null时抛出IllegalArgumentException，只有服务方法抛出的异常包装为InvocationTargetException
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class MethodHandleServiceInvoker implements ServiceInvoker {
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final MethodHandle[] handles;
+
+	// 各方法的参数类型，基本类型为其包装类
+	private final Class<?>[][] argumentTypes;
+
+	private final boolean[][] primitiveArguments;
+
+	public MethodHandleServiceInvoker(ServiceDispatchTable dispatchTable) throws IllegalAccessException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		this.handles = new MethodHandle[dispatchTable.getMethodTable().size()];
+		this.argumentTypes = new Class<?>[handles.length][];
+		this.primitiveArguments = new boolean[handles.length][];
+		for (int i = 0; i < handles.length; i++) {
+			MethodHandle handle = lookup.unreflect(dispatchTable.getTarget(i)).bindTo(dispatchTable.getServiceBean());
+			Class<?>[] parameterTypes = handle.type().parameterArray();
+			argumentTypes[i] = handle.type().wrap().parameterArray();
+			primitiveArguments[i] = new boolean[parameterTypes.length];
+			for (int j = 0; j < parameterTypes.length; j++) {
+				primitiveArguments[i][j] = parameterTypes[j].isPrimitive();
+			}
+			int parameterCount = handle.type().parameterCount();
+			handles[i] = handle.asType(MethodType.genericMethodType(parameterCount)).asSpreader(Object[].class,
+					parameterCount);
+		}
+	}
+
+	@Override
+	public Object invoke(int methodId, Object[] parameters) throws InvocationTargetException {
+		if (parameters == null) {
+			parameters = NO_ARGUMENTS;
+		}
+		checkArguments(argumentTypes[methodId], primitiveArguments[methodId], parameters);
+		try {
+			return (Object) handles[methodId].invokeExact(parameters);
+		} catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	private static void checkArguments(Class<?>[] types, boolean[] primitives, Object[] parameters) {
+		if (parameters.length != types.length) {
+			throw new IllegalArgumentException("wrong number of arguments");
+		}
+		for (int i = 0; i < types.length; i++) {
+			Object parameter = parameters[i];
+			if (parameter == null ? primitives[i] : !types[i].isInstance(parameter)) {
+				throw new IllegalArgumentException("argument type mismatch");
+			}
+		}
+	}
+
+}
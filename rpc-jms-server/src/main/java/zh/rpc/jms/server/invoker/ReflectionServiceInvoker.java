@@ -0,0 +1,34 @@
+package zh.rpc.jms.server.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+
+/**
+ * 反射调用分派表中预先查找并设置了访问权限的服务方法
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class ReflectionServiceInvoker implements ServiceInvoker {
+
+	private final Object serviceBean;
+
+	private final Method[] targets;
+
+	public ReflectionServiceInvoker(ServiceDispatchTable dispatchTable) {
+		this.serviceBean = dispatchTable.getServiceBean();
+		this.targets = new Method[dispatchTable.getMethodTable().size()];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = dispatchTable.getTarget(i);
+		}
+	}
+
+	@Override
+	public Object invoke(int methodId, Object[] parameters) throws IllegalAccessException,
+			InvocationTargetException {
+		return targets[methodId].invoke(serviceBean, parameters);
+	}
+
+}
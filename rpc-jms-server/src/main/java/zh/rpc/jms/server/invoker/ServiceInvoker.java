@@ -0,0 +1,25 @@
+package zh.rpc.jms.server.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 按方法编号调用服务对象，方法编号即服务接口MethodTable中的编号
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public interface ServiceInvoker {
+
+	/**
+	 * 调用服务方法，服务方法抛出的异常包装为InvocationTargetException
+	 *
+	 * @param methodId
+	 *            已校验的方法编号
+	 * @param parameters
+	 * @return 方法返回值，基本类型装箱，void方法返回null
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 */
+	Object invoke(int methodId, Object[] parameters) throws IllegalAccessException, InvocationTargetException;
+
+}
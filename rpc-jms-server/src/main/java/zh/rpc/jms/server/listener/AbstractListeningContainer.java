@@ -26,6 +26,9 @@ public abstract class AbstractListeningContainer implements SmartLifecycle, Init
 
 	private boolean sharedConnectionStarted = false;
 
+	// start()成功后为true，Spring据此在关闭时调用stop()
+	private volatile boolean running = false;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(RpcMessageListenerContainer.class);
 
 	@Override
@@ -33,6 +36,7 @@ public abstract class AbstractListeningContainer implements SmartLifecycle, Init
 		try {
 			establishSharedConnection();
 			startSharedConnection();
+			this.running = true;
 		} catch (JMSException e) {
 			throw new RpcJmsException(e);
 		}
@@ -40,6 +44,7 @@ public abstract class AbstractListeningContainer implements SmartLifecycle, Init
 
 	@Override
 	public void stop() {
+		this.running = false;
 		try {
 			stopSharedConnection();
 		} catch (JMSException e) {
@@ -49,7 +54,7 @@ public abstract class AbstractListeningContainer implements SmartLifecycle, Init
 
 	@Override
 	public boolean isRunning() {
-		return false;
+		return this.running;
 	}
 
 	@Override
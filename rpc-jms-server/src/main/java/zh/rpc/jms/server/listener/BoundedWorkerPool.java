@@ -0,0 +1,103 @@
+package zh.rpc.jms.server.listener;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+
+/**
+ * 容器内置的有界工作线程池：最多threads个线程处理请求，另有queueCapacity个请求排队；
+ * 已满时execute阻塞提交的消费者线程，消费者不再取下一条消息，其余消息留在broker上由其他服务实例消费。
+ * <p>
+ * 阻塞的消费者仍持有broker已预取给它的消息，消息能否留在broker上取决于客户端的预取数量，
+ * 使用ActiveMQ时应将jms.prefetchPolicy.queuePrefetch设为较小的值(如1)，默认的1000条会全部堆积在本实例的内存中。
+ * <p>
+ * 消费者Session为AUTO_ACKNOWLEDGE，消息在交给工作线程后即被确认，进程崩溃时最多丢失threads+queueCapacity个
+ * 已确认但尚未处理完的请求
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class BoundedWorkerPool implements Executor {
+
+	private final ThreadPoolExecutor executor;
+
+	// 处理中和排队中的请求数上限
+	private final Semaphore permits;
+
+	private final RpcListenerMetrics metrics;
+
+	public BoundedWorkerPool(int threads, int queueCapacity, RpcListenerMetrics metrics) {
+		if (threads <= 0 || queueCapacity < 0) {
+			throw new IllegalArgumentException("Invalid worker pool config: threads=" + threads
+					+ ", queueCapacity=" + queueCapacity);
+		}
+		this.permits = new Semaphore(threads + queueCapacity);
+		this.metrics = metrics;
+		// 提交前已由permits限制数量，队列本身不设上限
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "rpc-jms-worker-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 提交请求，处理中和排队中的请求已达上限时阻塞等待；等待被中断时抛出RpcJmsException，消息由broker重新投递
+	 */
+	@Override
+	public void execute(final Runnable task) {
+		if (!permits.tryAcquire()) {
+			metrics.incrementSaturated();
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RpcJmsException("Interrupted while waiting for a worker thread", e);
+			}
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 不再接受新的请求，已提交的请求继续处理完
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+}
@@ -0,0 +1,54 @@
+package zh.rpc.jms.server.listener;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import zh.rpc.jms.common.util.JmsUtils;
+
+/**
+ * 回复使用的Session，缓存一个不指定目的地的MessageProducer，发送时按请求的JMSReplyTo指定
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class ReplySession {
+
+	private final Session session;
+
+	private final MessageProducer producer;
+
+	ReplySession(Connection connection) throws JMSException {
+		this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		try {
+			this.producer = session.createProducer(null);
+		} catch (JMSException e) {
+			JmsUtils.closeSession(session);
+			throw e;
+		}
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * 发送到指定目的地
+	 *
+	 * @param destination
+	 * @param message
+	 * @throws JMSException
+	 */
+	public void send(Destination destination, Message message) throws JMSException {
+		producer.send(destination, message);
+	}
+
+	void destroy() {
+		JmsUtils.closeMessageProducer(producer);
+		JmsUtils.closeSession(session);
+	}
+
+}
@@ -0,0 +1,110 @@
+package zh.rpc.jms.server.listener;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+
+import zh.rpc.jms.common.exception.RpcJmsException;
+
+/**
+ * 服务端回复Session池：JMS Session不是线程安全的，taskExecutor的工作线程不能共用消费者的Session，
+ * 每次回复从池中借出一个ReplySession；最多maxSessions个，用尽时等待归还
+ *
+ * @author hui.zhao.cfs
+ *
+ */
+public class ReplySessionPool {
+
+	private final Connection connection;
+
+	private final int maxSessions;
+
+	private final LinkedBlockingDeque<ReplySession> idleSessions = new LinkedBlockingDeque<ReplySession>();
+
+	private final Semaphore permits;
+
+	private volatile boolean closed = false;
+
+	public ReplySessionPool(Connection connection, int maxSessions) {
+		if (maxSessions <= 0) {
+			throw new IllegalArgumentException("maxSessions must be positive");
+		}
+		this.connection = connection;
+		this.maxSessions = maxSessions;
+		this.permits = new Semaphore(maxSessions);
+	}
+
+	/**
+	 * 借出一个ReplySession，没有空闲的时创建，达到maxSessions时等待
+	 *
+	 * @return
+	 * @throws JMSException
+	 */
+	public ReplySession borrow() throws JMSException {
+		if (closed) {
+			throw new RpcJmsException("Reply session pool is closed");
+		}
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RpcJmsException("Interrupted while waiting for reply session", e);
+		}
+		ReplySession replySession = idleSessions.pollFirst();
+		if (replySession != null) {
+			return replySession;
+		}
+		try {
+			return new ReplySession(connection);
+		} catch (JMSException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 归还ReplySession，broken为true时直接关闭
+	 *
+	 * @param replySession
+	 * @param broken
+	 */
+	public void release(ReplySession replySession, boolean broken) {
+		if (replySession == null) {
+			return;
+		}
+		try {
+			if (broken || closed) {
+				replySession.destroy();
+			} else {
+				idleSessions.offerFirst(replySession);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 关闭所有空闲的ReplySession，借出中的在归还时关闭
+	 */
+	public void close() {
+		closed = true;
+		ReplySession replySession;
+		while ((replySession = idleSessions.pollFirst()) != null) {
+			replySession.destroy();
+		}
+	}
+
+	public int getNumIdle() {
+		return idleSessions.size();
+	}
+
+	public int getNumActive() {
+		return maxSessions - permits.availablePermits();
+	}
+
+}
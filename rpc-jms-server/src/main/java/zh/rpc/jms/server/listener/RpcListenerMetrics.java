@@ -0,0 +1,169 @@
+package zh.rpc.jms.server.listener;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务端消息处理统计，同一个容器下的所有监听器共享
+ * 
+ * @author hui.zhao.cfs
+ *
+ */
+public class RpcListenerMetrics {
+
+	// 收到的请求消息数
+	private final AtomicLong receivedCount = new AtomicLong();
+
+	// 因客户端已超时而丢弃的请求消息数
+	private final AtomicLong expiredCount = new AtomicLong();
+
+	// 已回复的响应消息数
+	private final AtomicLong repliedCount = new AtomicLong();
+
+	// 处理失败的请求消息数
+	private final AtomicLong failedCount = new AtomicLong();
+
+	// 无需回复的单向请求消息数
+	private final AtomicLong oneWayCount = new AtomicLong();
+
+	// 按路由属性判断服务或方法不存在，未反序列化即拒绝的请求消息数
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	// 消费者线程处理消息的累计耗时(纳秒)及正在处理消息的消费者数；
+	// 设置taskExecutor时为消费者线程提交消息的耗时，包括线程池已满时的等待
+	private final AtomicLong busyNanos = new AtomicLong();
+	private final AtomicInteger activeConsumers = new AtomicInteger();
+
+	// 请求消息从发送到开始处理的累计等待时间(毫秒)及次数
+	private final AtomicLong queueWaitMillis = new AtomicLong();
+	private final AtomicLong queueWaitCount = new AtomicLong();
+
+	// 当前消费者数
+	private final AtomicInteger consumerCount = new AtomicInteger();
+
+	// 内置工作线程池已满，消费者等待空闲线程的次数
+	private final AtomicLong saturatedCount = new AtomicLong();
+
+	// 自动增加、减少消费者的次数
+	private final AtomicLong scaleUpCount = new AtomicLong();
+	private final AtomicLong scaleDownCount = new AtomicLong();
+
+	public void incrementReceived() {
+		receivedCount.incrementAndGet();
+	}
+
+	public void incrementExpired() {
+		expiredCount.incrementAndGet();
+	}
+
+	public void incrementReplied() {
+		repliedCount.incrementAndGet();
+	}
+
+	public void incrementFailed() {
+		failedCount.incrementAndGet();
+	}
+
+	public void incrementOneWay() {
+		oneWayCount.incrementAndGet();
+	}
+
+	public void incrementRejected() {
+		rejectedCount.incrementAndGet();
+	}
+
+	public void consumerStarted() {
+		activeConsumers.incrementAndGet();
+	}
+
+	public void consumerFinished(long busyTime) {
+		activeConsumers.decrementAndGet();
+		busyNanos.addAndGet(busyTime);
+	}
+
+	public void recordQueueWait(long millis) {
+		queueWaitMillis.addAndGet(millis);
+		queueWaitCount.incrementAndGet();
+	}
+
+	void incrementSaturated() {
+		saturatedCount.incrementAndGet();
+	}
+
+	void setConsumerCount(int count) {
+		consumerCount.set(count);
+	}
+
+	void incrementScaleUp() {
+		scaleUpCount.incrementAndGet();
+	}
+
+	void incrementScaleDown() {
+		scaleDownCount.incrementAndGet();
+	}
+
+	public long getReceivedCount() {
+		return receivedCount.get();
+	}
+
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	public long getRepliedCount() {
+		return repliedCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public long getOneWayCount() {
+		return oneWayCount.get();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public long getBusyNanos() {
+		return busyNanos.get();
+	}
+
+	public int getActiveConsumers() {
+		return activeConsumers.get();
+	}
+
+	public long getQueueWaitMillis() {
+		return queueWaitMillis.get();
+	}
+
+	public long getQueueWaitCount() {
+		return queueWaitCount.get();
+	}
+
+	public long getSaturatedCount() {
+		return saturatedCount.get();
+	}
+
+	public int getConsumerCount() {
+		return consumerCount.get();
+	}
+
+	public long getScaleUpCount() {
+		return scaleUpCount.get();
+	}
+
+	public long getScaleDownCount() {
+		return scaleDownCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "received=" + getReceivedCount() + ", expired=" + getExpiredCount() + ", replied="
+				+ getRepliedCount() + ", failed=" + getFailedCount() + ", oneWay=" + getOneWayCount()
+				+ ", rejected=" + getRejectedCount() + ", saturated=" + getSaturatedCount() + ", consumers="
+				+ getConsumerCount() + ", scaleUp=" + getScaleUpCount() + ", scaleDown=" + getScaleDownCount();
+	}
+
+}
@@ -1,7 +1,9 @@
 package zh.rpc.jms.server.listener;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 
 import javax.jms.JMSException;
@@ -13,12 +15,21 @@ import javax.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import zh.rpc.jms.common.bean.RpcBatchRequest;
+import zh.rpc.jms.common.bean.RpcBatchResponse;
+import zh.rpc.jms.common.bean.RpcError;
 import zh.rpc.jms.common.bean.RpcRequest;
 import zh.rpc.jms.common.bean.RpcResponse;
 import zh.rpc.jms.common.converter.MessageConverter;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.serializer.PrimitiveCodec;
+import zh.rpc.jms.common.serializer.Serializer;
+import zh.rpc.jms.common.serializer.Serializers;
 import zh.rpc.jms.common.util.JmsUtils;
-import zh.rpc.jms.common.util.SerializationUtil;
+import zh.rpc.jms.common.util.MessageProperties;
+import zh.rpc.jms.server.annotation.RpcService;
 import zh.rpc.jms.server.annotation.RpcServiceParser;
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
 
 public class RpcMessageListener implements MessageListener {
 
@@ -32,95 +43,395 @@ public class RpcMessageListener implements MessageListener {
 
 	private MessageConverter messageConverter;
 
-	public RpcMessageListener(Session session, Executor taskExecutor, MessageConverter messageConverter,
-			RpcServiceParser rpcServiceParser) {
+	// 请求消息未携带编码标识时使用的序列化方式
+	private Serializer serializer;
+
+	// 允许请求使用的序列化方式，key为编码标识
+	private Map<Integer, Serializer> allowedSerializers;
+
+	private RpcListenerMetrics metrics;
+
+	// taskExecutor的工作线程回复时使用的Session池，未设置taskExecutor时为null
+	private ReplySessionPool replySessionPool;
+
+	// 未设置taskExecutor时在消费者Session上缓存的匿名producer，只在消费者线程中使用
+	private MessageProducer replyProducer;
+
+	public RpcMessageListener(Session session, Executor taskExecutor, ReplySessionPool replySessionPool,
+			MessageConverter messageConverter, Serializer serializer, Map<Integer, Serializer> allowedSerializers,
+			RpcServiceParser rpcServiceParser, RpcListenerMetrics metrics) {
 		this.session = session;
 		this.taskExecutor = taskExecutor;
+		this.replySessionPool = replySessionPool;
 		this.messageConverter = messageConverter;
+		this.serializer = serializer;
+		this.allowedSerializers = allowedSerializers;
 		this.rpcServiceParser = rpcServiceParser;
+		this.metrics = metrics;
 	}
 
+	/**
+	 * 处理消息，消费者线程的耗时计入消费者繁忙程度：设置taskExecutor时为提交到线程池的耗时，否则为处理消息的耗时
+	 */
 	@Override
 	public void onMessage(final Message message) {
-		if (taskExecutor != null) {
-			taskExecutor.execute(new Runnable() {
-				public void run() {
-					executeListener(session, message);
-				}
-			});
-		} else {
-			executeListener(session, message);
+		metrics.consumerStarted();
+		long startTime = System.nanoTime();
+		try {
+			if (taskExecutor != null) {
+				taskExecutor.execute(new Runnable() {
+					public void run() {
+						executeListener(session, message);
+					}
+				});
+			} else {
+				executeListener(session, message);
+			}
+		} finally {
+			metrics.consumerFinished(System.nanoTime() - startTime);
 		}
 	}
 
 	protected void executeListener(Session session, Message message) {
+		metrics.incrementReceived();
 		try {
+			long timestamp = message.getJMSTimestamp();
+			if (timestamp > 0) {
+				metrics.recordQueueWait(Math.max(0, System.currentTimeMillis() - timestamp));
+			}
+			if (isExpired(message)) {
+				metrics.incrementExpired();
+				LOGGER.debug("Discard expired request message [" + message.getJMSMessageID() + "]");
+				return;
+			}
+			if (rejectCodec(session, message)) {
+				metrics.incrementRejected();
+				return;
+			}
+			if (message.getBooleanProperty(MessageProperties.BATCH)) {
+				executeBatch(session, message);
+				return;
+			}
+			if (rejectUnroutable(session, message)) {
+				metrics.incrementRejected();
+				return;
+			}
 			RpcRequest rpcRequest = getRpcRequest(message);
+			if (message.getJMSReplyTo() == null) {
+				// 单向调用，不回复
+				metrics.incrementOneWay();
+				try {
+					invoke(rpcRequest, null);
+				} catch (Exception ex) {
+					LOGGER.warn("One-way request [" + rpcRequest.getRequestId() + "] failed", unwrap(ex));
+				}
+				return;
+			}
 			RpcResponse rpcResponse = invokeAndCreateResult(rpcRequest);
 			writeResponseMessage(session, message, rpcResponse);
 		} catch (Throwable ex) {
+			metrics.incrementFailed();
 			LOGGER.error("Execution of JMS message listener failed", ex);
 		}
 	}
 
 	/**
-	 * 回复客户端消息
+	 * 请求是否已过客户端的截止时间(JMSExpiration或截止时间属性)，在反序列化前判断；
+	 * 依赖客户端与服务端时钟同步
+	 * 
+	 * @param message
+	 * @return
+	 * @throws JMSException
+	 */
+	private boolean isExpired(Message message) throws JMSException {
+		long now = System.currentTimeMillis();
+		long expiration = message.getJMSExpiration();
+		if (expiration > 0 && expiration <= now) {
+			return true;
+		}
+		if (message.propertyExists(MessageProperties.DEADLINE)) {
+			long deadline = message.getLongProperty(MessageProperties.DEADLINE);
+			return deadline > 0 && deadline <= now;
+		}
+		return false;
+	}
+
+	/**
+	 * 请求的编码标识不在allowedSerializers中时不反序列化消息体，以默认序列化方式回复异常；
+	 * 批量消息按消息属性中的requestId逐个回复异常，客户端的每个请求都能立即失败
+	 * 
+	 * @param session
+	 * @param message
+	 * @return 是否已拒绝
+	 * @throws JMSException
+	 */
+	private boolean rejectCodec(Session session, Message message) throws JMSException {
+		if (getCodec(message) != null) {
+			return false;
+		}
+		String reason = "Serializer codec [" + message.getStringProperty(MessageProperties.CODEC)
+				+ "] is not allowed";
+		if (message.getJMSReplyTo() == null) {
+			LOGGER.warn("Reject one-way request message [" + message.getJMSMessageID() + "]: " + reason);
+			return true;
+		}
+		LOGGER.warn("Reject request message [" + message.getJMSMessageID() + "]: " + reason);
+		RpcError error = RpcError.of(new RpcJmsException(reason), 0);
+		if (message.getBooleanProperty(MessageProperties.BATCH)) {
+			List<String> requestIds = MessageProperties.readBatchRequestIds(message);
+			List<RpcResponse> responses = new ArrayList<RpcResponse>(requestIds.size());
+			for (String requestId : requestIds) {
+				RpcResponse rpcResponse = new RpcResponse();
+				rpcResponse.setRequestId(requestId);
+				rpcResponse.setError(error);
+				responses.add(rpcResponse);
+			}
+			RpcBatchResponse batchResponse = new RpcBatchResponse();
+			batchResponse.setBatchId(message.getJMSCorrelationID());
+			batchResponse.setResponses(responses);
+			writeResponseMessage(session, message, batchResponse);
+			return true;
+		}
+		RpcResponse rpcResponse = new RpcResponse();
+		rpcResponse.setRequestId(message.getJMSCorrelationID());
+		rpcResponse.setError(error);
+		writeResponseMessage(session, message, rpcResponse);
+		return true;
+	}
+
+	/**
+	 * 请求使用的序列化方式，未携带编码标识时为serializer，不允许的编码返回null
+	 * 
+	 * @param message
+	 * @return
+	 * @throws JMSException
+	 */
+	private Serializer getCodec(Message message) throws JMSException {
+		if (!message.propertyExists(MessageProperties.CODEC)) {
+			return serializer;
+		}
+		return allowedSerializers.get(message.getIntProperty(MessageProperties.CODEC));
+	}
+
+	/**
+	 * 按路由属性判断目标服务及方法编号是否存在，不存在时不反序列化消息体，直接回复异常；
+	 * 未携带路由属性的请求交由调用时判断
+	 * 
+	 * @param session
+	 * @param message
+	 * @return 是否已拒绝
+	 * @throws JMSException
+	 */
+	private boolean rejectUnroutable(Session session, Message message) throws JMSException {
+		String serviceName = message.getStringProperty(MessageProperties.INTERFACE);
+		if (serviceName == null) {
+			return false;
+		}
+		String serviceVersion = message.getStringProperty(MessageProperties.VERSION);
+		ServiceDispatchTable dispatchTable = rpcServiceParser.getDispatchTable(serviceName, serviceVersion);
+		Integer methodId = message.propertyExists(MessageProperties.METHOD_ID) ? message
+				.getIntProperty(MessageProperties.METHOD_ID) : null;
+		String reason;
+		if (dispatchTable == null) {
+			reason = String.format("can not find service bean by key: %s", serviceName);
+		} else if (methodId != null && dispatchTable.getMethodTable().getMethod(methodId) == null) {
+			reason = "Unknown method id " + methodId + " for [" + serviceName + "]";
+		} else {
+			return false;
+		}
+		if (message.getJMSReplyTo() == null) {
+			LOGGER.warn("Reject one-way request message [" + message.getJMSMessageID() + "]: " + reason);
+			return true;
+		}
+		RpcResponse rpcResponse = new RpcResponse();
+		rpcResponse.setRequestId(message.getJMSCorrelationID());
+		rpcResponse.setError(RpcError.of(new RpcJmsException(reason), 0));
+		writeResponseMessage(session, message, rpcResponse);
+		return true;
+	}
+
+	/**
+	 * 拆分批量请求，依次执行后合并为一条批量响应回复；执行到某个请求时已过其截止时间则跳过，不回复该请求，
+	 * 客户端已按超时处理
+	 * 
+	 * @param session
+	 * @param message
+	 * @throws JMSException
+	 */
+	private void executeBatch(Session session, Message message) throws JMSException {
+		RpcBatchRequest batchRequest = messageConverter.fromMessage(message, getCodec(message),
+				RpcBatchRequest.class);
+		List<RpcRequest> requests = batchRequest.getRequests();
+		long[] deadlines = batchRequest.getDeadlines();
+		int size = requests != null ? requests.size() : 0;
+		List<RpcResponse> responses = new ArrayList<RpcResponse>(size);
+		for (int i = 0; i < size; i++) {
+			if (deadlines != null && i < deadlines.length && deadlines[i] > 0
+					&& deadlines[i] <= System.currentTimeMillis()) {
+				metrics.incrementExpired();
+				LOGGER.debug("Discard expired request [" + requests.get(i).getRequestId() + "] of batch ["
+						+ batchRequest.getBatchId() + "]");
+				continue;
+			}
+			responses.add(invokeAndCreateResult(requests.get(i)));
+		}
+		if (responses.isEmpty()) {
+			return;
+		}
+		RpcBatchResponse batchResponse = new RpcBatchResponse();
+		batchResponse.setBatchId(batchRequest.getBatchId());
+		batchResponse.setResponses(responses);
+		writeResponseMessage(session, message, batchResponse);
+	}
+
+	/**
+	 * 回复客户端消息：设置taskExecutor时从回复Session池借出Session，不在工作线程中使用消费者的Session；
+	 * 否则使用消费者Session上缓存的匿名producer
 	 * 
 	 * @param session
 	 * @param requestMessage
 	 * @param rpcResponse
 	 * @throws JMSException
 	 */
-	private void writeResponseMessage(Session session, Message requestMessage, RpcResponse rpcResponse)
+	private void writeResponseMessage(Session session, Message requestMessage, Object rpcResponse)
 			throws JMSException {
-		Message response = createResponseMessage(session, requestMessage, rpcResponse);
-		MessageProducer producer = session.createProducer(requestMessage.getJMSReplyTo());
+		if (replySessionPool == null) {
+			Message response = createResponseMessage(session, requestMessage, rpcResponse);
+			if (replyProducer == null) {
+				replyProducer = session.createProducer(null);
+			}
+			try {
+				replyProducer.send(requestMessage.getJMSReplyTo(), response);
+			} catch (JMSException ex) {
+				JmsUtils.closeMessageProducer(replyProducer);
+				replyProducer = null;
+				throw ex;
+			}
+			metrics.incrementReplied();
+			return;
+		}
+		ReplySession replySession = replySessionPool.borrow();
+		boolean broken = true;
 		try {
-			producer.send(response);
+			Message response = createResponseMessage(replySession.getSession(), requestMessage, rpcResponse);
+			replySession.send(requestMessage.getJMSReplyTo(), response);
+			broken = false;
 		} finally {
-			JmsUtils.closeMessageProducer(producer);
+			replySessionPool.release(replySession, broken);
 		}
+		metrics.incrementReplied();
 	}
 
+	/**
+	 * 调用服务方法并生成响应；Error(如生成的调用类引发的LinkageError)同样回传给客户端，
+	 * 客户端不必等到超时，批量请求中其余请求的响应也照常回复
+	 * 
+	 * @param rpcRequest
+	 * @return
+	 */
 	private RpcResponse invokeAndCreateResult(RpcRequest rpcRequest) {
 		RpcResponse rpcResponse = new RpcResponse();
 		rpcResponse.setRequestId(rpcRequest.getRequestId());
 		try {
-			rpcResponse.setResult(invoke(rpcRequest));
-		} catch (Exception ex) {
-			rpcResponse.setException(ex);
+			invoke(rpcRequest, rpcResponse);
+		} catch (Throwable ex) {
+			setException(rpcResponse, rpcRequest, unwrap(ex));
 		}
 		return rpcResponse;
 	}
 
 	/**
-	 * 反射调用服务器本地方法
+	 * 按服务配置的方式回传异常：FULL方式序列化异常对象，COMPACT方式及找不到服务时只回传异常的摘要
 	 * 
+	 * @param rpcResponse
 	 * @param rpcRequest
+	 * @param ex
+	 */
+	private void setException(RpcResponse rpcResponse, RpcRequest rpcRequest, Throwable ex) {
+		ServiceDispatchTable dispatchTable = rpcServiceParser.getDispatchTable(rpcRequest.getInterfaceName(),
+				rpcRequest.getServiceVersion());
+		if (dispatchTable == null) {
+			rpcResponse.setError(RpcError.of(ex, 0));
+		} else if (dispatchTable.getExceptionEncoding() == RpcService.ExceptionEncoding.FULL
+				&& ex instanceof Exception) {
+			// 异常栈在首次访问时才填充到字段中，序列化前先取出
+			for (Throwable t = ex; t != null; t = t.getCause()) {
+				t.getStackTrace();
+			}
+			rpcResponse.setException((Exception) ex);
+		} else {
+			rpcResponse.setError(RpcError.of(ex, dispatchTable.getStackDepth()));
+		}
+	}
+
+	/**
+	 * 取出反射调用包装的服务方法异常
+	 * 
+	 * @param ex
 	 * @return
-	 * @throws NoSuchMethodException
-	 * @throws SecurityException
+	 */
+	private static Throwable unwrap(Throwable ex) {
+		if (ex instanceof InvocationTargetException) {
+			return ((InvocationTargetException) ex).getTargetException();
+		}
+		return ex;
+	}
+
+	/**
+	 * 调用服务器本地方法，方法编号均从方法分派表中确定：携带方法编号的请求直接校验编号，
+	 * 其余按方法名和参数类型查找，接口中不存在的方法直接拒绝；再经服务的ServiceInvoker按编号调用，
+	 * 请求要求时基本类型返回值单独编码
+	 * 
+	 * @param rpcRequest
+	 * @param rpcResponse
+	 *            单向调用时为null
 	 * @throws IllegalAccessException
 	 * @throws IllegalArgumentException
 	 * @throws InvocationTargetException
 	 */
-	private Object invoke(RpcRequest rpcRequest) throws NoSuchMethodException, SecurityException,
-			IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+	private void invoke(RpcRequest rpcRequest, RpcResponse rpcResponse) throws IllegalAccessException,
+			IllegalArgumentException, InvocationTargetException {
 		String serviceName = rpcRequest.getInterfaceName();
-		String serviceVersion = rpcRequest.getServiceVersion();
-		Object serviceBean = rpcServiceParser.getService(serviceName, serviceVersion);
-		if (serviceBean == null) {
+		ServiceDispatchTable dispatchTable = rpcServiceParser.getDispatchTable(serviceName,
+				rpcRequest.getServiceVersion());
+		if (dispatchTable == null) {
 			throw new RuntimeException(String.format("can not find service bean by key: %s", serviceName));
 		}
+		int methodId;
+		if (rpcRequest.hasMethodId()) {
+			methodId = rpcRequest.getMethodId();
+			dispatchTable.checkMethodId(methodId, rpcRequest.getMethodDigest());
+		} else {
+			methodId = dispatchTable.getMethodId(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+		}
+		Object result = dispatchTable.getInvoker().invoke(methodId,
+				getParameters(rpcRequest, dispatchTable.getPrimitiveCodec(methodId)));
+		if (rpcResponse == null) {
+			return;
+		}
+		Class<?> returnType = dispatchTable.getTarget(methodId).getReturnType();
+		if (rpcRequest.isPackResult() && returnType.isPrimitive() && returnType != void.class) {
+			rpcResponse.setPrimitiveResult(PrimitiveCodec.packResult(returnType, result));
+		} else {
+			rpcResponse.setResult(result);
+		}
+	}
 
-		Class<?> serviceClass = serviceBean.getClass();
-		String methodName = rpcRequest.getMethodName();
-		Class<?>[] parameterTypes = rpcRequest.getParameterTypes();
-		Object[] parameters = rpcRequest.getParameters();
-
-		Method method = serviceClass.getMethod(methodName, parameterTypes);
-		method.setAccessible(true);
-		return method.invoke(serviceBean, parameters);
+	/**
+	 * 合并单独编码的基本类型参数与其余参数
+	 * 
+	 * @param rpcRequest
+	 * @param primitiveCodec
+	 * @return
+	 */
+	private Object[] getParameters(RpcRequest rpcRequest, PrimitiveCodec primitiveCodec) {
+		if (rpcRequest.getPrimitiveParameters() == null) {
+			return rpcRequest.getParameters();
+		}
+		if (primitiveCodec == null) {
+			throw new RpcJmsException("Request carries packed parameters but method has no primitive parameters");
+		}
+		return primitiveCodec.unpack(rpcRequest.getPrimitiveParameters(), rpcRequest.getParameters());
 	}
 
 	/**
@@ -131,13 +442,13 @@ public class RpcMessageListener implements MessageListener {
 	 * @throws JMSException
 	 */
 	private RpcRequest getRpcRequest(Message message) throws JMSException {
-		byte messByte[] = (byte[]) messageConverter.fromMessage(message);
-		RpcRequest rpcRequest = SerializationUtil.deserialize(messByte, RpcRequest.class);
+		RpcRequest rpcRequest = messageConverter.fromMessage(message, getCodec(message), RpcRequest.class);
 		return rpcRequest;
 	}
 
 	/**
-	 * 创建回复Message
+	 * 创建回复Message，使用与请求相同的序列化方式，请求的编码不被允许时使用serializer；
+	 * 完整的异常对象无法序列化时改为紧凑方式回传
 	 * 
 	 * @param session
 	 * @param requestMessage
@@ -145,9 +456,27 @@ public class RpcMessageListener implements MessageListener {
 	 * @return
 	 * @throws JMSException
 	 */
-	private Message createResponseMessage(Session session, Message requestMessage, RpcResponse rpcResponse)
+	private Message createResponseMessage(Session session, Message requestMessage, Object rpcResponse)
 			throws JMSException {
-		Message responseMessage = messageConverter.toMessage(SerializationUtil.serialize(rpcResponse), session);
+		Serializer codec = getCodec(requestMessage);
+		if (codec == null) {
+			codec = serializer;
+		}
+		Message responseMessage;
+		try {
+			responseMessage = messageConverter.toMessage(rpcResponse, codec, session);
+		} catch (RuntimeException ex) {
+			if (!compactExceptions(rpcResponse)) {
+				throw ex;
+			}
+			LOGGER.warn("Could not serialize exception with codec [" + codec.getId()
+					+ "] - falling back to compact exception encoding: " + ex);
+			responseMessage = messageConverter.toMessage(rpcResponse, codec, session);
+		}
+		Serializers.writeCodec(responseMessage, codec);
+		if (rpcResponse instanceof RpcBatchResponse) {
+			responseMessage.setBooleanProperty(MessageProperties.BATCH, true);
+		}
 		String correlation = requestMessage.getJMSCorrelationID();
 		if (correlation == null) {
 			correlation = requestMessage.getJMSMessageID();
@@ -156,4 +485,31 @@ public class RpcMessageListener implements MessageListener {
 		return responseMessage;
 	}
 
+	/**
+	 * 将响应中完整回传的异常改为紧凑方式(不含异常栈)
+	 * 
+	 * @param rpcResponse
+	 *            RpcResponse或RpcBatchResponse
+	 * @return 是否有异常被改写
+	 */
+	private static boolean compactExceptions(Object rpcResponse) {
+		if (rpcResponse instanceof RpcBatchResponse) {
+			boolean compacted = false;
+			for (RpcResponse response : ((RpcBatchResponse) rpcResponse).getResponses()) {
+				compacted |= compactException(response);
+			}
+			return compacted;
+		}
+		return rpcResponse instanceof RpcResponse && compactException((RpcResponse) rpcResponse);
+	}
+
+	private static boolean compactException(RpcResponse rpcResponse) {
+		if (rpcResponse.getError() != null || rpcResponse.getException() == null) {
+			return false;
+		}
+		rpcResponse.setError(RpcError.of(rpcResponse.getException(), 0));
+		rpcResponse.setException(null);
+		return true;
+	}
+
 }
@@ -1,8 +1,20 @@
 package zh.rpc.jms.server.listener;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.Connection;
 import javax.jms.ExceptionListener;
@@ -14,33 +26,108 @@ import javax.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 
 import zh.rpc.jms.common.converter.DefaultMessageConverter;
 import zh.rpc.jms.common.converter.MessageConverter;
 import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.serializer.Serializer;
+import zh.rpc.jms.common.serializer.Serializers;
 import zh.rpc.jms.common.util.ConnectionFactoryUtils;
+import zh.rpc.jms.common.util.JmsUtils;
+import zh.rpc.jms.common.util.MessageProperties;
+import zh.rpc.jms.common.util.WarmUpUtils;
 import zh.rpc.jms.server.annotation.RpcServiceParser;
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+import zh.rpc.jms.server.invoker.InvokerFactory;
 
-public class RpcMessageListenerContainer extends AbstractListeningContainer implements ExceptionListener {
+public class RpcMessageListenerContainer extends AbstractListeningContainer implements ExceptionListener,
+		DisposableBean {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RpcMessageListenerContainer.class);
 
+	// 消费者处理消息的时间占比达到该值视为繁忙
+	private static final double BUSY_UTILIZATION = 0.9;
+
+	// 消费者处理消息的时间占比低于该值视为空闲
+	private static final double IDLE_UTILIZATION = 0.5;
+
 	private Queue destination;
 
-	// 消费端并发数量 默认：1
+	// 消费端并发数量，自动伸缩时为共享消费者的最少数量 默认：1
 	private int concurrentConsumers = 1;
 
+	// 共享消费者的最多数量，大于concurrentConsumers时按负载自动增减消费者 默认：0，不伸缩
+	private int maxConsumers = 0;
+
+	// 检查消费者负载的间隔(毫秒) 默认：1000
+	private long scaleInterval = 1000;
+
+	// 请求在队列中的平均等待时间达到该值(毫秒)视为繁忙，依赖客户端与服务端时钟同步；0为不按等待时间判断 默认：500
+	private long scaleUpQueueWait = 500;
+
+	// 持续空闲超过该时间(毫秒)后减少一个消费者 默认：60000
+	private long idleTimeout = 60000;
+
+	// 按服务单独创建的消费者数，key为服务全称(接口名或接口名-版本)；这些服务的请求经消息选择器只由各自的消费者处理，
+	// 不再占用concurrentConsumers 可选
+	private Map<String, Integer> serviceConsumers;
+
 	private Executor taskExecutor;
 
+	// 内置工作线程数，大于0时由容器创建有界线程池处理请求，线程池已满时消费者停止取消息；需同时调小broker客户端的
+	// 预取数量(如ActiveMQ的jms.prefetchPolicy.queuePrefetch)，否则已预取的消息仍堆积在本实例；消息交给线程池时即已确认，
+	// 进程崩溃时最多丢失workerThreads+workerQueueCapacity个请求；不能与taskExecutor同时设置 默认：0
+	private int workerThreads = 0;
+
+	// 内置线程池中排队等待的请求数上限 默认：0，只交给空闲线程
+	private int workerQueueCapacity = 0;
+
+	private BoundedWorkerPool workerPool;
+
+	// 设置taskExecutor时工作线程回复使用的Session数上限 默认：8
+	private int replySessions = 8;
+
+	private ReplySessionPool replySessionPool;
+
 	private Set<Session> sessions;
 
 	private Set<MessageConsumer> consumers;
 
+	// 自动增加的共享消费者及其Session，按增加顺序排列，减少时先关闭最后增加的
+	private Deque<Session> scaledSessions = new LinkedList<Session>();
+
+	private Deque<MessageConsumer> scaledConsumers = new LinkedList<MessageConsumer>();
+
+	private final Object consumersMonitor = new Object();
+
+	private ScheduledExecutorService scaler;
+
 	private RpcServiceParser rpcServiceParser = new RpcServiceParser();
 
 	private MessageConverter messageConverter = new DefaultMessageConverter();
 
+	// 请求消息未携带编码标识时使用的序列化方式 默认：protostuff
+	private Serializer serializer = Serializers.getDefault();
+
+	// 请求可使用的其他序列化方式；Kryo、JDK序列化可实例化任意类，只在消息来源可信时加入 默认：只允许serializer
+	private List<Serializer> allowedSerializers;
+
+	// 按编码标识索引的serializer及allowedSerializers
+	private Map<Integer, Serializer> codecs;
+
+	private RpcListenerMetrics metrics = new RpcListenerMetrics();
+
+	// 服务方法的调用方式 默认：REFLECTION
+	private InvokerFactory.Strategy invokerStrategy = InvokerFactory.Strategy.REFLECTION;
+
+	// 开始消费前是否为所有服务方法预先构建schema 默认：true
+	private boolean warmUp = true;
+
+	// 预热时模拟序列化/反序列化的轮数 默认：0
+	private int warmUpRounds = 0;
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		rpcServiceParser.parserRpcServices(applicationContext);
@@ -54,9 +141,65 @@ public class RpcMessageListenerContainer extends AbstractListeningContainer impl
 		if (this.destination == null) {
 			throw new IllegalArgumentException("Property 'destination' is required");
 		}
+		if (this.maxConsumers > 0 && (this.concurrentConsumers < 1 || this.scaleInterval <= 0)) {
+			throw new IllegalArgumentException("Automatic scaling requires 'concurrentConsumers' >= 1 and "
+					+ "'scaleInterval' > 0");
+		}
+		Map<Integer, Serializer> codecs = new HashMap<Integer, Serializer>();
+		if (this.allowedSerializers != null) {
+			for (Serializer allowed : this.allowedSerializers) {
+				codecs.put(allowed.getId(), allowed);
+			}
+		}
+		codecs.put(this.serializer.getId(), this.serializer);
+		this.codecs = Collections.unmodifiableMap(codecs);
+		if (this.workerThreads > 0) {
+			if (this.taskExecutor != null) {
+				throw new IllegalArgumentException("Properties 'workerThreads' and 'taskExecutor' are exclusive");
+			}
+			this.workerPool = new BoundedWorkerPool(this.workerThreads, this.workerQueueCapacity, this.metrics);
+			this.taskExecutor = this.workerPool;
+		}
+		if (this.taskExecutor != null && this.replySessions < 1) {
+			throw new IllegalArgumentException("Property 'replySessions' must be positive");
+		}
+		if (this.serviceConsumers != null) {
+			for (Map.Entry<String, Integer> entry : this.serviceConsumers.entrySet()) {
+				if (rpcServiceParser.getService(entry.getKey()) == null) {
+					throw new IllegalArgumentException("'serviceConsumers' refers to unknown service ["
+							+ entry.getKey() + "]");
+				}
+				if (entry.getValue() == null || entry.getValue() < 1) {
+					throw new IllegalArgumentException("'serviceConsumers' for [" + entry.getKey()
+							+ "] must be positive");
+				}
+			}
+		}
+		if (this.invokerStrategy != InvokerFactory.Strategy.REFLECTION) {
+			rpcServiceParser.createInvokers(this.invokerStrategy);
+		}
+		if (this.warmUp) {
+			warmUp();
+		}
 		initialize();
 	}
 
+	/**
+	 * 为所有@RpcService的接口方法构建schema，并按warmUpRounds执行模拟的序列化/反序列化；
+	 * 方法查找已在解析服务时完成
+	 */
+	protected void warmUp() {
+		long startTime = System.currentTimeMillis();
+		List<Method> methods = new ArrayList<Method>();
+		for (ServiceDispatchTable dispatchTable : rpcServiceParser.getDispatchTables()) {
+			methods.addAll(dispatchTable.getMethodTable().getMethods());
+		}
+		int schemas = WarmUpUtils.preloadSchemas(methods);
+		WarmUpUtils.runRounds(serializer, methods, warmUpRounds);
+		LOGGER.info("Warmed up " + methods.size() + " service methods (" + schemas + " schemas, " + warmUpRounds
+				+ " rounds) in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+
 	/**
 	 * 初始化connection和consumer
 	 */
@@ -91,19 +234,172 @@ public class RpcMessageListenerContainer extends AbstractListeningContainer impl
 	 * @throws JMSException
 	 */
 	protected void initializeConsumers() throws JMSException {
+		synchronized (this.consumersMonitor) {
+			doInitializeConsumers();
+		}
+	}
+
+	private void doInitializeConsumers() throws JMSException {
 		if (this.consumers == null) {
 			this.sessions = new HashSet<Session>(this.concurrentConsumers);
 			this.consumers = new HashSet<MessageConsumer>(this.concurrentConsumers);
 			Connection con = getSharedConnection();
+			if (this.taskExecutor != null) {
+				this.replySessionPool = new ReplySessionPool(con, this.replySessions);
+			}
+			String sharedSelector = getSharedSelector();
 			for (int i = 0; i < this.concurrentConsumers; i++) {
-				Session session = createSession(con);
-				MessageConsumer consumer = createListenerConsumer(session);
-				this.sessions.add(session);
-				this.consumers.add(consumer);
+				addConsumer(con, sharedSelector);
+			}
+			if (this.serviceConsumers != null) {
+				for (Map.Entry<String, Integer> entry : this.serviceConsumers.entrySet()) {
+					String selector = getServiceSelector(entry.getKey());
+					for (int i = 0; i < entry.getValue(); i++) {
+						addConsumer(con, selector);
+					}
+				}
+			}
+			this.metrics.setConsumerCount(this.consumers.size());
+		}
+	}
+
+	private void addConsumer(Connection con, String selector) throws JMSException {
+		Session session = createSession(con);
+		MessageConsumer consumer = createListenerConsumer(session, selector);
+		this.sessions.add(session);
+		this.consumers.add(consumer);
+	}
+
+	private void scaleUp(double utilization, long queueWait) throws JMSException {
+		synchronized (this.consumersMonitor) {
+			Connection con = getSharedConnection();
+			if (this.consumers == null || con == null
+					|| this.concurrentConsumers + this.scaledConsumers.size() >= this.maxConsumers) {
+				return;
+			}
+			Session session = createSession(con);
+			MessageConsumer consumer;
+			try {
+				consumer = createListenerConsumer(session, getSharedSelector());
+			} catch (JMSException ex) {
+				JmsUtils.closeSession(session);
+				throw ex;
+			}
+			this.sessions.add(session);
+			this.consumers.add(consumer);
+			this.scaledSessions.addLast(session);
+			this.scaledConsumers.addLast(consumer);
+			this.metrics.setConsumerCount(this.consumers.size());
+			this.metrics.incrementScaleUp();
+			LOGGER.info("Scaled up to " + (this.concurrentConsumers + this.scaledConsumers.size())
+					+ " shared consumers (utilization " + Math.round(utilization * 100) + "%, queue wait "
+					+ queueWait + "ms)");
+		}
+	}
+
+	/**
+	 * 关闭最后增加的共享消费者，关闭时等待其正在处理的消息完成，已预取未处理的消息由broker重新投递
+	 * 
+	 * @param utilization
+	 */
+	private void scaleDown(double utilization) {
+		MessageConsumer consumer;
+		Session session;
+		int sharedConsumers;
+		synchronized (this.consumersMonitor) {
+			if (this.consumers == null || this.scaledConsumers.isEmpty()) {
+				return;
 			}
+			consumer = this.scaledConsumers.removeLast();
+			session = this.scaledSessions.removeLast();
+			this.consumers.remove(consumer);
+			this.sessions.remove(session);
+			this.metrics.setConsumerCount(this.consumers.size());
+			sharedConsumers = this.concurrentConsumers + this.scaledConsumers.size();
+		}
+		JmsUtils.closeMessageConsumer(consumer);
+		JmsUtils.closeSession(session);
+		this.metrics.incrementScaleDown();
+		LOGGER.info("Scaled down to " + sharedConsumers + " shared consumers (utilization "
+				+ Math.round(utilization * 100) + "%)");
+	}
+
+	@Override
+	public void start() {
+		super.start();
+		if (this.maxConsumers > this.concurrentConsumers && this.scaler == null) {
+			this.scaler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "rpc-jms-consumer-scaler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.scaler.scheduleWithFixedDelay(new ConsumerScaler(), this.scaleInterval, this.scaleInterval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (this.scaler != null) {
+			this.scaler.shutdownNow();
+			this.scaler = null;
+		}
+		super.stop();
+	}
+
+	/**
+	 * 关闭内置工作线程池，已提交的请求继续处理完
+	 */
+	@Override
+	public void destroy() {
+		if (this.scaler != null) {
+			this.scaler.shutdownNow();
+			this.scaler = null;
+		}
+		if (this.workerPool != null) {
+			this.workerPool.shutdown();
 		}
 	}
 
+	/**
+	 * 服务专用消费者的消息选择器：接口名和版本都匹配
+	 * 
+	 * @param serviceFullName
+	 * @return
+	 */
+	private String getServiceSelector(String serviceFullName) {
+		int index = serviceFullName.indexOf(RpcServiceParser.CONNECTOR);
+		String serviceName = index > 0 ? serviceFullName.substring(0, index) : serviceFullName;
+		String serviceVersion = index > 0 ? serviceFullName.substring(index + 1) : "";
+		return MessageProperties.INTERFACE + " = '" + serviceName.replace("'", "''") + "' AND "
+				+ MessageProperties.VERSION + " = '" + serviceVersion.replace("'", "''") + "'";
+	}
+
+	/**
+	 * 共享消费者的消息选择器：排除有专用消费者的服务，未携带路由属性的请求仍由共享消费者处理；
+	 * 没有专用消费者时为null
+	 * 
+	 * @return
+	 */
+	private String getSharedSelector() {
+		if (this.serviceConsumers == null || this.serviceConsumers.isEmpty()) {
+			return null;
+		}
+		StringBuilder selector = new StringBuilder(MessageProperties.INTERFACE).append(" IS NULL OR NOT (");
+		boolean first = true;
+		for (String serviceFullName : this.serviceConsumers.keySet()) {
+			if (!first) {
+				selector.append(" OR ");
+			}
+			selector.append('(').append(getServiceSelector(serviceFullName)).append(')');
+			first = false;
+		}
+		return selector.append(')').toString();
+	}
+
 	protected Session createSession(Connection con) throws JMSException {
 		return con.createSession(false, Session.AUTO_ACKNOWLEDGE);
 	}
@@ -112,21 +408,42 @@ public class RpcMessageListenerContainer extends AbstractListeningContainer impl
 	 * 对Consumer设置监听
 	 * 
 	 * @param session
+	 * @param selector
+	 *            消息选择器 可为null
 	 * @return
 	 * @throws JMSException
 	 */
-	protected MessageConsumer createListenerConsumer(final Session session) throws JMSException {
-		MessageConsumer consumer = session.createConsumer(destination);
-		consumer.setMessageListener(new RpcMessageListener(session, taskExecutor, messageConverter, rpcServiceParser));
+	protected MessageConsumer createListenerConsumer(final Session session, String selector) throws JMSException {
+		MessageConsumer consumer = session.createConsumer(destination, selector);
+		consumer.setMessageListener(new RpcMessageListener(session, taskExecutor, replySessionPool,
+				messageConverter, serializer, codecs, rpcServiceParser, metrics));
 		return consumer;
 	}
 
 	@Override
 	public void onException(JMSException ex) {
+		synchronized (this.consumersMonitor) {
+			recover(ex);
+		}
+	}
+
+	private void recover(JMSException ex) {
 		try {
 			this.sessions = null;
 			this.consumers = null;
-			refreshSharedConnection();
+			// 重建后恢复为concurrentConsumers个共享消费者
+			this.scaledSessions.clear();
+			this.scaledConsumers.clear();
+			ReplySessionPool staleReplySessions = this.replySessionPool;
+			this.replySessionPool = null;
+			try {
+				refreshSharedConnection();
+			} finally {
+				// 旧连接释放后其Session已关闭，这里只丢弃空闲的ReplySession
+				if (staleReplySessions != null) {
+					staleReplySessions.close();
+				}
+			}
 			initializeConsumers();
 			LOGGER.info("Successfully refreshed JMS Connection");
 		} catch (JMSException recoverEx) {
@@ -144,10 +461,51 @@ public class RpcMessageListenerContainer extends AbstractListeningContainer impl
 		this.concurrentConsumers = concurrentConsumers;
 	}
 
+	/**
+	 * 共享消费者的最少数量，与concurrentConsumers相同
+	 * 
+	 * @param minConsumers
+	 */
+	public void setMinConsumers(int minConsumers) {
+		this.concurrentConsumers = minConsumers;
+	}
+
+	public void setMaxConsumers(int maxConsumers) {
+		this.maxConsumers = maxConsumers;
+	}
+
+	public void setScaleInterval(long scaleInterval) {
+		this.scaleInterval = scaleInterval;
+	}
+
+	public void setScaleUpQueueWait(long scaleUpQueueWait) {
+		this.scaleUpQueueWait = scaleUpQueueWait;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public void setServiceConsumers(Map<String, Integer> serviceConsumers) {
+		this.serviceConsumers = serviceConsumers;
+	}
+
 	public void setTaskExecutor(Executor taskExecutor) {
 		this.taskExecutor = taskExecutor;
 	}
 
+	public void setWorkerThreads(int workerThreads) {
+		this.workerThreads = workerThreads;
+	}
+
+	public void setWorkerQueueCapacity(int workerQueueCapacity) {
+		this.workerQueueCapacity = workerQueueCapacity;
+	}
+
+	public void setReplySessions(int replySessions) {
+		this.replySessions = replySessions;
+	}
+
 	public void setSessions(Set<Session> sessions) {
 		this.sessions = sessions;
 	}
@@ -160,4 +518,102 @@ public class RpcMessageListenerContainer extends AbstractListeningContainer impl
 		this.destination = destination;
 	}
 
+	public void setSerializer(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
+	public void setAllowedSerializers(List<Serializer> allowedSerializers) {
+		this.allowedSerializers = allowedSerializers;
+	}
+
+	public void setInvokerStrategy(InvokerFactory.Strategy invokerStrategy) {
+		this.invokerStrategy = invokerStrategy;
+	}
+
+	public void setWarmUp(boolean warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	public void setWarmUpRounds(int warmUpRounds) {
+		this.warmUpRounds = warmUpRounds;
+	}
+
+	public RpcListenerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * 按上次检查以来的负载增减共享消费者：消费者的繁忙程度取处理消息的时间占比与检查时正在处理消息的消费者占比中的较大者，
+	 * 繁忙程度或请求的平均等待时间连续两次达到繁忙时增加一个，
+	 * 持续空闲idleTimeout后减少一个，数量保持在concurrentConsumers和maxConsumers之间
+	 */
+	private class ConsumerScaler implements Runnable {
+
+		private long lastTime = System.nanoTime();
+
+		private long lastBusyNanos = metrics.getBusyNanos();
+
+		private long lastQueueWaitMillis = metrics.getQueueWaitMillis();
+
+		private long lastQueueWaitCount = metrics.getQueueWaitCount();
+
+		private long lastSaturatedCount = metrics.getSaturatedCount();
+
+		private int busyChecks = 0;
+
+		private long idleSince = System.currentTimeMillis();
+
+		@Override
+		public void run() {
+			try {
+				check();
+			} catch (Exception ex) {
+				LOGGER.warn("Could not adjust message consumers", ex);
+			}
+		}
+
+		private void check() throws JMSException {
+			long now = System.nanoTime();
+			long busyNanos = metrics.getBusyNanos();
+			long queueWaitMillis = metrics.getQueueWaitMillis();
+			long queueWaitCount = metrics.getQueueWaitCount();
+			long saturatedCount = metrics.getSaturatedCount();
+			int consumerCount = Math.max(1, metrics.getConsumerCount());
+			// 耗时较长的调用在完成前不计入busyNanos，同时参考检查时正在处理消息的消费者数
+			double utilization = Math.max((double) (busyNanos - lastBusyNanos) / ((now - lastTime) * consumerCount),
+					(double) metrics.getActiveConsumers() / consumerCount);
+			long waited = queueWaitCount - lastQueueWaitCount;
+			long queueWait = waited > 0 ? (queueWaitMillis - lastQueueWaitMillis) / waited : 0;
+			lastTime = now;
+			lastBusyNanos = busyNanos;
+			lastQueueWaitMillis = queueWaitMillis;
+			lastQueueWaitCount = queueWaitCount;
+			// 工作线程池已满时消费者阻塞在提交上，繁忙和等待来自线程池而非消费者数，既不扩容也不视为空闲
+			boolean saturated = saturatedCount != lastSaturatedCount;
+			lastSaturatedCount = saturatedCount;
+			if (saturated) {
+				busyChecks = 0;
+				idleSince = System.currentTimeMillis();
+				return;
+			}
+
+			boolean waiting = scaleUpQueueWait > 0 && queueWait >= scaleUpQueueWait;
+			if (utilization >= BUSY_UTILIZATION || waiting) {
+				idleSince = System.currentTimeMillis();
+				if (++busyChecks >= 2) {
+					busyChecks = 0;
+					scaleUp(utilization, queueWait);
+				}
+				return;
+			}
+			busyChecks = 0;
+			if (utilization >= IDLE_UTILIZATION) {
+				idleSince = System.currentTimeMillis();
+			} else if (System.currentTimeMillis() - idleSince >= idleTimeout) {
+				idleSince = System.currentTimeMillis();
+				scaleDown(utilization);
+			}
+		}
+	}
+
 }
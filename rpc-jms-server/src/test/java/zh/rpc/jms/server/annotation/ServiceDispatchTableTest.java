@@ -0,0 +1,93 @@
+package zh.rpc.jms.server.annotation;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.common.exception.RpcJmsException;
+import zh.rpc.jms.common.util.MethodTable;
+
+public class ServiceDispatchTableTest extends TestCase {
+
+	public interface Lookup {
+		String find(String key);
+
+		String find(String key, int limit);
+
+		int count();
+	}
+
+	@RpcService(Lookup.class)
+	public static class LookupImpl implements Lookup {
+		public String find(String key) {
+			return key;
+		}
+
+		public String find(String key, int limit) {
+			return key + limit;
+		}
+
+		public int count() {
+			return 0;
+		}
+	}
+
+	@RpcService(Lookup.class)
+	public static class NotALookup {
+	}
+
+	private ServiceDispatchTable dispatchTable;
+
+	@Override
+	protected void setUp() {
+		dispatchTable = new ServiceDispatchTable(new LookupImpl(), LookupImpl.class.getAnnotation(RpcService.class));
+	}
+
+	public void testLookupByNameAndParameterTypes() throws Exception {
+		int id = dispatchTable.getMethodId("find", new Class<?>[] { String.class, int.class });
+		assertEquals(LookupImpl.class.getMethod("find", String.class, int.class), dispatchTable.getTarget(id));
+		assertNotNull(dispatchTable.getPrimitiveCodec(id));
+
+		id = dispatchTable.getMethodId("find", new Class<?>[] { String.class });
+		assertEquals(LookupImpl.class.getMethod("find", String.class), dispatchTable.getTarget(id));
+		assertNull(dispatchTable.getPrimitiveCodec(id));
+
+		// 无参方法的参数类型可以为null
+		id = dispatchTable.getMethodId("count", null);
+		assertEquals("count", dispatchTable.getTarget(id).getName());
+	}
+
+	public void testUnknownMethodIsRejected() {
+		try {
+			dispatchTable.getMethodId("find", new Class<?>[] { Object.class });
+			fail("no such overload");
+		} catch (RpcJmsException expected) {
+		}
+		try {
+			dispatchTable.getMethodId("toString", null);
+			fail("not an interface method");
+		} catch (RpcJmsException expected) {
+		}
+	}
+
+	public void testCheckMethodId() {
+		int digest = MethodTable.of(Lookup.class).getDigest();
+		dispatchTable.checkMethodId(0, digest);
+		try {
+			dispatchTable.checkMethodId(3, digest);
+			fail("method id out of range");
+		} catch (RpcJmsException expected) {
+		}
+		try {
+			dispatchTable.checkMethodId(0, digest + 1);
+			fail("digest mismatch");
+		} catch (RpcJmsException expected) {
+		}
+	}
+
+	public void testServiceBeanMustImplementInterface() {
+		try {
+			new ServiceDispatchTable(new NotALookup(), NotALookup.class.getAnnotation(RpcService.class));
+			fail("service bean does not implement the interface");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
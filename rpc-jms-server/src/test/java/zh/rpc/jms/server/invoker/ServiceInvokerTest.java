@@ -0,0 +1,147 @@
+package zh.rpc.jms.server.invoker;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import junit.framework.TestCase;
+import zh.rpc.jms.server.annotation.RpcService;
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+
+public class ServiceInvokerTest extends TestCase {
+
+	public interface Calc {
+		long add(int a, long b);
+
+		String concat(String a, Object b);
+
+		void fail(String message) throws IOException;
+
+		String cast(Object value);
+	}
+
+	@RpcService(Calc.class)
+	public static class CalcImpl implements Calc {
+		public long add(int a, long b) {
+			return a + b;
+		}
+
+		public String concat(String a, Object b) {
+			return a + b;
+		}
+
+		public void fail(String message) throws IOException {
+			throw new IOException(message);
+		}
+
+		public String cast(Object value) {
+			return (String) value;
+		}
+	}
+
+	static class Key {
+		@Override
+		public String toString() {
+			return "key";
+		}
+	}
+
+	public interface Lookup {
+		String find(Key key);
+	}
+
+	@RpcService(Lookup.class)
+	public static class LookupImpl implements Lookup {
+		public String find(Key key) {
+			return key.toString();
+		}
+	}
+
+	private ServiceDispatchTable dispatchTable;
+
+	@Override
+	protected void setUp() {
+		dispatchTable = new ServiceDispatchTable(new CalcImpl(), CalcImpl.class.getAnnotation(RpcService.class));
+	}
+
+	public void testReflection() throws Exception {
+		check(InvokerFactory.create(InvokerFactory.Strategy.REFLECTION, dispatchTable));
+	}
+
+	public void testMethodHandle() throws Exception {
+		ServiceInvoker invoker = InvokerFactory.create(InvokerFactory.Strategy.METHOD_HANDLE, dispatchTable);
+		assertTrue(invoker instanceof MethodHandleServiceInvoker);
+		check(invoker);
+	}
+
+	public void testBytecode() throws Exception {
+		ServiceInvoker invoker = InvokerFactory.create(InvokerFactory.Strategy.BYTECODE, dispatchTable);
+		assertFalse(invoker instanceof ReflectionServiceInvoker);
+		check(invoker);
+	}
+
+	/**
+	 * 生成的实现类无法访问非public的参数类型，退回反射调用
+	 */
+	public void testBytecodeFallsBackForNonPublicTypes() throws Exception {
+		ServiceDispatchTable lookupTable = new ServiceDispatchTable(new LookupImpl(),
+				LookupImpl.class.getAnnotation(RpcService.class));
+		ServiceInvoker invoker = InvokerFactory.create(InvokerFactory.Strategy.BYTECODE, lookupTable);
+		assertTrue(invoker instanceof ReflectionServiceInvoker);
+		int find = lookupTable.getMethodId("find", new Class<?>[] { Key.class });
+		assertEquals("key", invoker.invoke(find, new Object[] { new Key() }));
+	}
+
+	private void check(ServiceInvoker invoker) throws Exception {
+		int add = dispatchTable.getMethodId("add", new Class<?>[] { int.class, long.class });
+		int concat = dispatchTable.getMethodId("concat", new Class<?>[] { String.class, Object.class });
+		int cast = dispatchTable.getMethodId("cast", new Class<?>[] { Object.class });
+		assertEquals(Long.valueOf(42), invoker.invoke(add, new Object[] { 40, 2L }));
+		assertEquals("anull", invoker.invoke(concat, new Object[] { "a", null }));
+		assertEquals("x", invoker.invoke(cast, new Object[] { "x" }));
+	}
+
+	/**
+	 * 各调用方式的参数错误须与反射调用一致
+	 */
+	public void testArgumentErrorsAreIllegalArgument() throws Exception {
+		for (InvokerFactory.Strategy strategy : InvokerFactory.Strategy.values()) {
+			ServiceInvoker invoker = InvokerFactory.create(strategy, dispatchTable);
+			int add = dispatchTable.getMethodId("add", new Class<?>[] { int.class, long.class });
+			int concat = dispatchTable.getMethodId("concat", new Class<?>[] { String.class, Object.class });
+			assertIllegalArgument(strategy, invoker, add, new Object[] { null, 2L });
+			assertIllegalArgument(strategy, invoker, add, new Object[] { "40", 2L });
+			assertIllegalArgument(strategy, invoker, concat, new Object[] { 1, "b" });
+		}
+	}
+
+	public void testTargetExceptionsAreWrapped() throws Exception {
+		for (InvokerFactory.Strategy strategy : InvokerFactory.Strategy.values()) {
+			ServiceInvoker invoker = InvokerFactory.create(strategy, dispatchTable);
+			int fail = dispatchTable.getMethodId("fail", new Class<?>[] { String.class });
+			int cast = dispatchTable.getMethodId("cast", new Class<?>[] { Object.class });
+			try {
+				invoker.invoke(fail, new Object[] { "boom" });
+				fail(strategy + ": expected InvocationTargetException");
+			} catch (InvocationTargetException e) {
+				assertTrue(e.getTargetException() instanceof IOException);
+			}
+			// 服务方法内部的ClassCastException不是参数错误
+			try {
+				invoker.invoke(cast, new Object[] { 1 });
+				fail(strategy + ": expected InvocationTargetException");
+			} catch (InvocationTargetException e) {
+				assertTrue(e.getTargetException() instanceof ClassCastException);
+			}
+		}
+	}
+
+	private static void assertIllegalArgument(InvokerFactory.Strategy strategy, ServiceInvoker invoker,
+			int methodId, Object[] parameters) throws Exception {
+		try {
+			invoker.invoke(methodId, parameters);
+			fail(strategy + ": expected IllegalArgumentException");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
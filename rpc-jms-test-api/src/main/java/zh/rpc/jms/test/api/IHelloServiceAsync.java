@@ -0,0 +1,10 @@
+package zh.rpc.jms.test.api;
+
+import java.util.concurrent.Future;
+
+public interface IHelloServiceAsync {
+
+    Future<String> hello(String name);
+
+    Future<String> hello(Person person);
+}
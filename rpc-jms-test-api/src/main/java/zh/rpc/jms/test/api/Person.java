@@ -1,6 +1,10 @@
 package zh.rpc.jms.test.api;
 
-public class Person {
+import java.io.Serializable;
+
+public class Person implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String firstName;
     private String lastName;
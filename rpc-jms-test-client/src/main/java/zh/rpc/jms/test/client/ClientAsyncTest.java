@@ -0,0 +1,33 @@
+package zh.rpc.jms.test.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import zh.rpc.jms.test.api.IHelloServiceAsync;
+import zh.rpc.jms.test.api.Person;
+
+public class ClientAsyncTest {
+
+	private static ApplicationContext context;
+
+	public static void main(String[] args) throws Exception {
+		context = new ClassPathXmlApplicationContext("spring-client.xml");
+		IHelloServiceAsync helloService = (IHelloServiceAsync) context.getBean("rpcAsyncService");
+		long startTime = System.currentTimeMillis();
+		int times = 1000;
+		List<Future<String>> futures = new ArrayList<Future<String>>(times);
+		for (int i = 0; i < times; i++) {
+			futures.add(helloService.hello(new Person("zhao", "hui" + i)));
+		}
+		for (int i = 0; i < times; i++) {
+			System.out.println("第" + i + "次收到返回值 = " + futures.get(i).get());
+		}
+		long endTime = System.currentTimeMillis();
+		System.out.println("异步发送" + times + "次，耗时 = " + (endTime - startTime) + "ms");
+		System.exit(0);
+	}
+}
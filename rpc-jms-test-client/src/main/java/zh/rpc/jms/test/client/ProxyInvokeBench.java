@@ -0,0 +1,94 @@
+package zh.rpc.jms.test.client;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+import zh.rpc.jms.client.RpcProxyBean;
+import zh.rpc.jms.client.proxy.ProxyFactory;
+import zh.rpc.jms.common.bean.RpcRequest;
+import zh.rpc.jms.common.util.RequestIdGenerator;
+import zh.rpc.jms.test.api.IHelloService;
+
+/**
+ * 客户端代理热路径微基准：不经过JMS，统计每次调用的耗时和内存分配
+ */
+public class ProxyInvokeBench {
+
+	private static final int WARMUP = 1000000;
+
+	private static final int ITERATIONS = 5000000;
+
+	private static volatile int sink;
+
+	interface Op {
+		void run(int i) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		RpcProxyBean proxyBean = new RpcProxyBean() {
+			@Override
+			public Object invoke(RpcRequest request) {
+				sink += request.getRequestId().length();
+				return null;
+			}
+		};
+		proxyBean.setServiceInterface(IHelloService.class);
+		ProxyFactory proxyFactory = new ProxyFactory(proxyBean);
+		final IHelloService helloService = (IHelloService) proxyFactory.getProxy();
+		final IHelloService helloStub = (IHelloService) proxyFactory.getProxy(ProxyFactory.Generator.BYTECODE);
+		final Method method = IHelloService.class.getMethod("hello", String.class);
+		final Object[] arguments = new Object[] { "World" };
+
+		bench("UUID.randomUUID", new Op() {
+			public void run(int i) {
+				sink += UUID.randomUUID().toString().length();
+			}
+		});
+		bench("RequestIdGenerator", new Op() {
+			public void run(int i) {
+				sink += RequestIdGenerator.nextId().length();
+			}
+		});
+		bench("反射构建请求(旧)", new Op() {
+			public void run(int i) {
+				RpcRequest request = new RpcRequest();
+				request.setRequestId(UUID.randomUUID().toString());
+				request.setInterfaceName(method.getDeclaringClass().getName());
+				request.setServiceVersion("");
+				request.setMethodName(method.getName());
+				request.setParameterTypes(method.getParameterTypes());
+				request.setParameters(arguments);
+				sink += request.getRequestId().length();
+			}
+		});
+		bench("代理调用(预计算描述符)", new Op() {
+			public void run(int i) {
+				helloService.hello("World");
+			}
+		});
+		bench("生成实现类调用", new Op() {
+			public void run(int i) {
+				helloStub.hello("World");
+			}
+		});
+	}
+
+	private static void bench(String name, Op op) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			op.run(i);
+		}
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			op.run(i);
+		}
+		long elapsed = System.nanoTime() - startTime;
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+		System.out.println(String.format("%-24s %8.1f ns/op %8.1f B/op", name, (double) elapsed / ITERATIONS,
+				(double) allocated / ITERATIONS));
+	}
+}
@@ -0,0 +1,79 @@
+package zh.rpc.jms.test.server;
+
+import java.lang.management.ManagementFactory;
+
+import zh.rpc.jms.server.annotation.RpcService;
+import zh.rpc.jms.server.annotation.ServiceDispatchTable;
+import zh.rpc.jms.server.invoker.InvokerFactory;
+import zh.rpc.jms.server.invoker.ServiceInvoker;
+import zh.rpc.jms.test.api.IHelloService;
+import zh.rpc.jms.test.server.impl.HelloServiceImpl;
+
+/**
+ * 服务端方法调用微基准：不经过JMS和序列化，比较反射、MethodHandle和生成实现类三种调用方式的耗时和内存分配
+ */
+public class ServerInvokeBench {
+
+	private static final int WARMUP = 1000000;
+
+	private static final int ITERATIONS = 10000000;
+
+	private static volatile int sink;
+
+	interface Op {
+		void run(int i) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final HelloServiceImpl serviceBean = new HelloServiceImpl();
+		ServiceDispatchTable dispatchTable = new ServiceDispatchTable(serviceBean,
+				HelloServiceImpl.class.getAnnotation(RpcService.class));
+		final int methodId = dispatchTable.getMethodId("hello", new Class<?>[] { String.class });
+		final Object[] parameters = new Object[] { "World" };
+		final IHelloService direct = serviceBean;
+		// 每种调用方式使用各自的调用点，避免互相影响JIT的类型剖析
+		final ServiceInvoker reflection = InvokerFactory.create(InvokerFactory.Strategy.REFLECTION, dispatchTable);
+		final ServiceInvoker methodHandle = InvokerFactory.create(InvokerFactory.Strategy.METHOD_HANDLE,
+				dispatchTable);
+		final ServiceInvoker bytecode = InvokerFactory.create(InvokerFactory.Strategy.BYTECODE, dispatchTable);
+
+		bench("直接调用", new Op() {
+			public void run(int i) {
+				sink += direct.hello("World").length();
+			}
+		});
+		bench("REFLECTION", new Op() {
+			public void run(int i) throws Exception {
+				sink += ((String) reflection.invoke(methodId, parameters)).length();
+			}
+		});
+		bench("METHOD_HANDLE", new Op() {
+			public void run(int i) throws Exception {
+				sink += ((String) methodHandle.invoke(methodId, parameters)).length();
+			}
+		});
+		bench("BYTECODE", new Op() {
+			public void run(int i) throws Exception {
+				sink += ((String) bytecode.invoke(methodId, parameters)).length();
+			}
+		});
+	}
+
+	private static void bench(String name, Op op) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			op.run(i);
+		}
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			op.run(i);
+		}
+		long elapsed = System.nanoTime() - startTime;
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+		System.out.println(String.format("%-24s %8.1f ns/op %8.1f B/op", name, (double) elapsed / ITERATIONS,
+				(double) allocated / ITERATIONS));
+	}
+}